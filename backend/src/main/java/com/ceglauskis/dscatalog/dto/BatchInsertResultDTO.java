@@ -0,0 +1,43 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchInsertResultDTO implements Serializable {
+
+    private int received;
+    private List<Long> ids = new ArrayList<>();
+    private List<BatchItemErrorDTO> errors = new ArrayList<>();
+
+    public BatchInsertResultDTO() {
+    }
+
+    public BatchInsertResultDTO(int received) {
+        this.received = received;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public int getInserted() {
+        return ids.size();
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public List<BatchItemErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void addId(Long id) {
+        ids.add(id);
+    }
+
+    public void addError(int index, String fieldName, String message) {
+        errors.add(new BatchItemErrorDTO(index, fieldName, message));
+    }
+}
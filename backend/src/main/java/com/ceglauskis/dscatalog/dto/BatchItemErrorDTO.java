@@ -0,0 +1,31 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class BatchItemErrorDTO implements Serializable {
+
+    private int index;
+    private String fieldName;
+    private String message;
+
+    public BatchItemErrorDTO() {
+    }
+
+    public BatchItemErrorDTO(int index, String fieldName, String message) {
+        this.index = index;
+        this.fieldName = fieldName;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
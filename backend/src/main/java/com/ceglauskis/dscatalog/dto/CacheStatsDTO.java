@@ -0,0 +1,82 @@
+package com.ceglauskis.dscatalog.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.io.Serializable;
+
+public class CacheStatsDTO implements Serializable {
+
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long evictionWeight;
+    private long estimatedSize;
+    private long weightedSize;
+    private long maximumWeight;
+    private long coalescedCount;
+    private long coalesceTimeoutCount;
+    private long notFoundHitCount;
+
+    public CacheStatsDTO() {
+    }
+
+    public CacheStatsDTO(CacheStats stats, long estimatedSize, long weightedSize, long maximumWeight,
+                         long coalescedCount, long coalesceTimeoutCount, long notFoundHitCount) {
+        this.hitCount = stats.hitCount();
+        this.missCount = stats.missCount();
+        this.hitRate = stats.hitRate();
+        this.evictionCount = stats.evictionCount();
+        this.evictionWeight = stats.evictionWeight();
+        this.estimatedSize = estimatedSize;
+        this.weightedSize = weightedSize;
+        this.maximumWeight = maximumWeight;
+        this.coalescedCount = coalescedCount;
+        this.coalesceTimeoutCount = coalesceTimeoutCount;
+        this.notFoundHitCount = notFoundHitCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public long getCoalesceTimeoutCount() {
+        return coalesceTimeoutCount;
+    }
+
+    public long getNotFoundHitCount() {
+        return notFoundHitCount;
+    }
+}
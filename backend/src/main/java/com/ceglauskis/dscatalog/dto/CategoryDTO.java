@@ -1,6 +1,8 @@
 package com.ceglauskis.dscatalog.dto;
 
 import com.ceglauskis.dscatalog.entities.Category;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.io.Serializable;
 
@@ -8,6 +10,15 @@ public class CategoryDTO implements Serializable {
 
     private Long id;
     private String name;
+    private Integer version;
+
+    // only set on /categories responses, embedded product categories leave it out
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long productCount;
+
+    // sort key of the in-memory category listing, never part of a response
+    @JsonIgnore
+    private String nameNormalized;
 
     public CategoryDTO() {
     }
@@ -20,6 +31,20 @@ public class CategoryDTO implements Serializable {
     public CategoryDTO(Category entity){
         this.id = entity.getId();
         this.name = entity.getName();
+        this.version = entity.getVersion();
+        this.nameNormalized = entity.getNameNormalized();
+    }
+
+    public CategoryDTO(Category entity, Long productCount){
+        this(entity);
+        this.productCount = productCount;
+    }
+
+    public CategoryDTO(CategoryDTO dto, Long productCount){
+        this(dto.getId(), dto.getName());
+        this.version = dto.getVersion();
+        this.nameNormalized = dto.getNameNormalized();
+        this.productCount = productCount;
     }
 
     public Long getId() {
@@ -37,4 +62,20 @@ public class CategoryDTO implements Serializable {
     public void setName(String name) {
         this.name = name;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public Long getProductCount() {
+        return productCount;
+    }
+
+    public String getNameNormalized() {
+        return nameNormalized;
+    }
 }
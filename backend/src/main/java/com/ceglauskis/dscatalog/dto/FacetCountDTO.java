@@ -0,0 +1,51 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class FacetCountDTO implements Serializable {
+
+    private Long id;
+    private String name;
+    private Double from;
+    private Double to;
+    private long count;
+
+    public FacetCountDTO() {
+    }
+
+    public static FacetCountDTO category(Long id, String name, long count) {
+        FacetCountDTO dto = new FacetCountDTO();
+        dto.id = id;
+        dto.name = name;
+        dto.count = count;
+        return dto;
+    }
+
+    public static FacetCountDTO priceRange(Double from, Double to, long count) {
+        FacetCountDTO dto = new FacetCountDTO();
+        dto.from = from;
+        dto.to = to;
+        dto.count = count;
+        return dto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getFrom() {
+        return from;
+    }
+
+    public Double getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
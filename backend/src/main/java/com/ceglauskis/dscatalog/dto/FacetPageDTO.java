@@ -0,0 +1,52 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FacetPageDTO implements Serializable {
+
+    private List<ProductDTO> content = new ArrayList<>();
+    private int page;
+    private int size;
+    private long totalElements;
+    private List<FacetCountDTO> categories = new ArrayList<>();
+    private List<FacetCountDTO> prices = new ArrayList<>();
+
+    public FacetPageDTO() {
+    }
+
+    public FacetPageDTO(List<ProductDTO> content, int page, int size, long totalElements,
+                        List<FacetCountDTO> categories, List<FacetCountDTO> prices) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.categories = categories;
+        this.prices = prices;
+    }
+
+    public List<ProductDTO> getContent() {
+        return content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public List<FacetCountDTO> getCategories() {
+        return categories;
+    }
+
+    public List<FacetCountDTO> getPrices() {
+        return prices;
+    }
+}
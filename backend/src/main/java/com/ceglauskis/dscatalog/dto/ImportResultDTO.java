@@ -0,0 +1,47 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResultDTO implements Serializable {
+
+    private static final int MAX_ERRORS = 1000;
+
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private List<BatchItemErrorDTO> errors = new ArrayList<>();
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<BatchItemErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void addInserted(long count) {
+        inserted += count;
+    }
+
+    public void addUpdated(long count) {
+        updated += count;
+    }
+
+    // only the first errors are kept so the summary stays small for huge files
+    public void reject(int line, String fieldName, String message) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new BatchItemErrorDTO(line, fieldName, message));
+        }
+    }
+}
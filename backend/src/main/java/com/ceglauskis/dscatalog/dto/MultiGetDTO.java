@@ -0,0 +1,27 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MultiGetDTO<T> implements Serializable {
+
+    private List<T> content = new ArrayList<>();
+    private List<Long> missing = new ArrayList<>();
+
+    public MultiGetDTO() {
+    }
+
+    public MultiGetDTO(List<T> content, List<Long> missing) {
+        this.content = content;
+        this.missing = missing;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PriceUpdateDTO implements Serializable {
+
+    private List<Long> ids = new ArrayList<>();
+    private Long categoryId;
+    private Double price;
+    private Double percentage;
+    private Double delta;
+
+    public PriceUpdateDTO() {
+    }
+
+    public PriceUpdateDTO(List<Long> ids, Long categoryId, Double price, Double percentage, Double delta) {
+        this.ids = ids;
+        this.categoryId = categoryId;
+        this.price = price;
+        this.percentage = percentage;
+        this.delta = delta;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Double getPercentage() {
+        return percentage;
+    }
+
+    public void setPercentage(Double percentage) {
+        this.percentage = percentage;
+    }
+
+    public Double getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Double delta) {
+        this.delta = delta;
+    }
+}
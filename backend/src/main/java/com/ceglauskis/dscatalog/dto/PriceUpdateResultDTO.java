@@ -0,0 +1,19 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class PriceUpdateResultDTO implements Serializable {
+
+    private int affected;
+
+    public PriceUpdateResultDTO() {
+    }
+
+    public PriceUpdateResultDTO(int affected) {
+        this.affected = affected;
+    }
+
+    public int getAffected() {
+        return affected;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+
+public class ProductCountDriftDTO implements Serializable {
+
+    private Long categoryId;
+    private long stored;
+    private long actual;
+
+    public ProductCountDriftDTO() {
+    }
+
+    public ProductCountDriftDTO(Long categoryId, long stored, long actual) {
+        this.categoryId = categoryId;
+        this.stored = stored;
+        this.actual = actual;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public long getStored() {
+        return stored;
+    }
+
+    public long getActual() {
+        return actual;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductCountRepairDTO implements Serializable {
+
+    private int checked;
+    private List<ProductCountDriftDTO> drift = new ArrayList<>();
+
+    public ProductCountRepairDTO() {
+    }
+
+    public ProductCountRepairDTO(int checked, List<ProductCountDriftDTO> drift) {
+        this.checked = checked;
+        this.drift = drift;
+    }
+
+    public int getChecked() {
+        return checked;
+    }
+
+    public int getRepaired() {
+        return drift.size();
+    }
+
+    public List<ProductCountDriftDTO> getDrift() {
+        return drift;
+    }
+}
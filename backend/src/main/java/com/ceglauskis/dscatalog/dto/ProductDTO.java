@@ -29,6 +29,8 @@ public class ProductDTO implements Serializable {
     @PastOrPresent(message = "Products date doesn't to be a future")
     private Instant date;
 
+    private Integer version;
+
     private List<CategoryDTO> categories = new ArrayList<>();
 
     public ProductDTO() {
@@ -50,6 +52,7 @@ public class ProductDTO implements Serializable {
         this.price = entity.getPrice();
         this.imgUrl = entity.getImgUrl();
         this.date = entity.getDate();
+        this.version = entity.getVersion();
     }
 
     public ProductDTO(Product entity, Set<Category> categories){
@@ -105,6 +108,14 @@ public class ProductDTO implements Serializable {
         this.date = date;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public List<CategoryDTO> getCategories() {
         return categories;
     }
@@ -0,0 +1,45 @@
+package com.ceglauskis.dscatalog.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+// list rows leave out description and categories, the full ProductDTO is served by /products/{id}
+public class ProductListDTO implements Serializable {
+
+    private Long id;
+    private String name;
+    private Double price;
+    private String imgUrl;
+    private Instant date;
+
+    public ProductListDTO() {
+    }
+
+    public ProductListDTO(Long id, String name, Double price, String imgUrl, Instant date) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.imgUrl = imgUrl;
+        this.date = date;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public String getImgUrl() {
+        return imgUrl;
+    }
+
+    public Instant getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ceglauskis.dscatalog.dto;
+
+import com.ceglauskis.dscatalog.services.search.SuggestSnapshot;
+
+import java.io.Serializable;
+
+public class SuggestionDTO implements Serializable {
+
+    private String type;
+    private Long id;
+    private String name;
+
+    public SuggestionDTO() {
+    }
+
+    public SuggestionDTO(String type, Long id, String name) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+    }
+
+    public SuggestionDTO(SuggestSnapshot.Entry entry) {
+        this(entry.getType(), entry.getId(), entry.getName());
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -1,6 +1,9 @@
 package com.ceglauskis.dscatalog.entities;
 
+import com.ceglauskis.dscatalog.util.TextNormalizer;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.time.Instant;
@@ -9,7 +12,8 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "tb_category")
+@DynamicUpdate
+@Table(name = "tb_category", indexes = @Index(name = "idx_category_name_normalized", columnList = "name_normalized"))
 public class Category implements Serializable {
 
     @Id
@@ -17,12 +21,24 @@ public class Category implements Serializable {
     private Long id;
     private String name;
 
+    @Column(name = "name_normalized")
+    private String nameNormalized;
+
     @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
     private Instant createdAt;
 
     @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
     private Instant updatedAt;
 
+    @Version
+    @Column(columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+    private Integer version;
+
+    // maintained by CategoryService with relative UPDATEs, never written from entity state
+    @ColumnDefault("0")
+    @Column(name = "product_count", nullable = false)
+    private Long productCount = 0L;
+
     @ManyToMany(mappedBy = "categories")
     private Set<Product> products = new HashSet<>();
 
@@ -32,6 +48,7 @@ public class Category implements Serializable {
     public Category(Long id, String name) {
         this.id = id;
         this.name = name;
+        this.nameNormalized = TextNormalizer.normalize(name);
     }
 
     public Long getId() {
@@ -48,6 +65,11 @@ public class Category implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        this.nameNormalized = TextNormalizer.normalize(name);
+    }
+
+    public String getNameNormalized() {
+        return nameNormalized;
     }
 
     public Instant getCreatedAt() {
@@ -58,6 +80,14 @@ public class Category implements Serializable {
         return updatedAt;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public Long getProductCount() {
+        return productCount;
+    }
+
     public Set<Product> getProducts() {
         return products;
     }
@@ -1,6 +1,8 @@
 package com.ceglauskis.dscatalog.entities;
 
+import com.ceglauskis.dscatalog.util.TextNormalizer;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.time.Instant;
@@ -9,12 +11,18 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "tb_product")
+@DynamicUpdate
+@Table(name = "tb_product", indexes = @Index(name = "idx_product_name_normalized", columnList = "name_normalized"))
 public class Product implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "tb_product_seq", allocationSize = 50)
     private Long id;
     private String name;
+
+    @Column(name = "name_normalized")
+    private String nameNormalized;
+
     private Double price;
 
     @Column(columnDefinition = "TEXT")
@@ -26,6 +34,10 @@ public class Product implements Serializable {
     @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
     private Instant date;
 
+    @Version
+    @Column(columnDefinition = "INTEGER DEFAULT 0 NOT NULL")
+    private Integer version;
+
     @ManyToMany
     @JoinTable(
             name = "tb_product_category",
@@ -40,6 +52,7 @@ public class Product implements Serializable {
     public Product(Long id, String name, String description, Double price, String imgUrl, Instant date) {
         this.id = id;
         this.name = name;
+        this.nameNormalized = TextNormalizer.normalize(name);
         this.description = description;
         this.price = price;
         this.imgUrl = imgUrl;
@@ -60,6 +73,11 @@ public class Product implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        this.nameNormalized = TextNormalizer.normalize(name);
+    }
+
+    public String getNameNormalized() {
+        return nameNormalized;
     }
 
     public String getDescription() {
@@ -94,6 +112,10 @@ public class Product implements Serializable {
         this.date = date;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     public Set<Category> getCategories() {
         return categories;
     }
@@ -1,12 +1,14 @@
 package com.ceglauskis.dscatalog.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@DynamicUpdate
 @Table(name = "tb_user")
 public class User {
 
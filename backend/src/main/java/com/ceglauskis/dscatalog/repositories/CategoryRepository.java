@@ -2,10 +2,31 @@ package com.ceglauskis.dscatalog.repositories;
 
 import com.ceglauskis.dscatalog.entities.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+    @Modifying
+    @Query("UPDATE Category obj SET obj.productCount = obj.productCount + :delta WHERE obj.id IN :ids")
+    int addProductCount(Collection<Long> ids, long delta);
+
+    @Query("SELECT obj.id, obj.productCount, " +
+            "(SELECT COUNT(p) FROM Product p JOIN p.categories cat WHERE cat.id = obj.id) " +
+            "FROM Category obj ORDER BY obj.id")
+    List<Object[]> findProductCounts();
+
+    @Query("SELECT obj.id, obj.productCount FROM Category obj WHERE obj.id IN :ids")
+    List<Object[]> findProductCountsByIds(Collection<Long> ids);
 
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Category obj SET obj.productCount = " +
+            "(SELECT COUNT(p) FROM Product p JOIN p.categories cat WHERE cat.id = obj.id) " +
+            "WHERE obj.id IN :ids")
+    int recomputeProductCounts(Collection<Long> ids);
 }
@@ -1,9 +1,124 @@
 package com.ceglauskis.dscatalog.repositories;
 
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
 import com.ceglauskis.dscatalog.entities.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    @Override
+    @EntityGraph(attributePaths = "categories")
+    Optional<Product> findById(Long id);
+
+    @Query("SELECT obj.version FROM Product obj WHERE obj.id = :id")
+    Optional<Integer> findVersionById(Long id);
+
+    @Query(value = "SELECT new com.ceglauskis.dscatalog.dto.ProductListDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) " +
+            "FROM Product obj",
+            countQuery = "SELECT COUNT(obj) FROM Product obj")
+    Page<ProductListDTO> findAllForList(Pageable pageable);
+
+    @Query(value = "SELECT new com.ceglauskis.dscatalog.dto.ProductListDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) " +
+            "FROM Product obj " +
+            "WHERE obj.nameNormalized LIKE CONCAT('%', :name, '%')",
+            countQuery = "SELECT COUNT(obj) FROM Product obj " +
+            "WHERE obj.nameNormalized LIKE CONCAT('%', :name, '%')")
+    Page<ProductListDTO> searchByName(String name, Pageable pageable);
+
+    @Query(value = "SELECT new com.ceglauskis.dscatalog.dto.ProductListDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) " +
+            "FROM Product obj " +
+            "WHERE obj.nameNormalized LIKE CONCAT('%', :name, '%') " +
+            "AND obj.id IN (SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id IN :categoryIds)",
+            countQuery = "SELECT COUNT(obj) FROM Product obj " +
+            "WHERE obj.nameNormalized LIKE CONCAT('%', :name, '%') " +
+            "AND obj.id IN (SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id IN :categoryIds)")
+    Page<ProductListDTO> search(List<Long> categoryIds, String name, Pageable pageable);
+
+    @Query("SELECT new com.ceglauskis.dscatalog.dto.ProductListDTO(obj.id, obj.name, obj.price, obj.imgUrl, obj.date) " +
+            "FROM Product obj JOIN obj.categories cat WHERE cat.id = :categoryId")
+    List<ProductListDTO> findListByCategory(Long categoryId, Pageable pageable);
+
+    Window<Product> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+    @Query("SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj.id IN :ids")
+    List<Product> findProductsWithCategories(List<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT obj, cat.id FROM Product obj LEFT JOIN obj.categories cat ORDER BY obj.id")
+    Stream<Object[]> streamAllWithCategoryIds();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj.id, obj.name, obj.description FROM Product obj")
+    Stream<Object[]> streamSearchableText();
+
+    @Query("SELECT obj.id, obj.name, obj.description FROM Product obj WHERE obj.id IN :ids")
+    List<Object[]> findSearchableText(Collection<Long> ids);
+
+    @Query("SELECT obj.id, obj.name, obj.description FROM Product obj WHERE obj.id BETWEEN :minId AND :maxId")
+    List<Object[]> findSearchableTextBetween(Long minId, Long maxId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj.id, obj.name, obj.nameNormalized, obj.date FROM Product obj")
+    Stream<Object[]> streamSuggestText();
+
+    @Query("SELECT obj.id, obj.name, obj.nameNormalized, obj.date FROM Product obj WHERE obj.id IN :ids")
+    List<Object[]> findSuggestText(Collection<Long> ids);
+
+    @Query("SELECT obj.id, obj.name, obj.nameNormalized, obj.date FROM Product obj WHERE obj.id BETWEEN :minId AND :maxId")
+    List<Object[]> findSuggestTextBetween(Long minId, Long maxId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT obj.id, obj.price, cat.id FROM Product obj LEFT JOIN obj.categories cat ORDER BY obj.id")
+    Stream<Object[]> streamFacetValues();
+
+    @Query("SELECT obj.id, obj.price, cat.id FROM Product obj LEFT JOIN obj.categories cat WHERE obj.id IN :ids")
+    List<Object[]> findFacetValues(Collection<Long> ids);
+
+    @Query("SELECT obj.id, obj.price, cat.id FROM Product obj LEFT JOIN obj.categories cat WHERE obj.id BETWEEN :minId AND :maxId")
+    List<Object[]> findFacetValuesBetween(Long minId, Long maxId);
+
+    @Query("SELECT cat.id FROM Product p JOIN p.categories cat WHERE p.id = :id")
+    List<Long> findCategoryIds(Long id);
+
+    @Query("SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id = :categoryId AND p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsByCategoryAfter(Long categoryId, Long afterId, Limit limit);
+
+    // same guard as updatePrices; the row locks keep the selected ids and the updated rows in step
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT obj.id FROM Product obj WHERE obj.id IN :ids AND ROUND(obj.price * :factor + :delta, 2) > 0")
+    List<Long> findIdsForPriceUpdate(Collection<Long> ids, double factor, double delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product obj SET obj.price = ROUND(obj.price * :factor + :delta, 2), obj.version = obj.version + 1 " +
+            "WHERE obj.id IN :ids AND ROUND(obj.price * :factor + :delta, 2) > 0")
+    int updatePrices(List<Long> ids, double factor, double delta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product obj SET obj.price = ROUND(obj.price * :factor + :delta, 2), obj.version = obj.version + 1 " +
+            "WHERE EXISTS (SELECT 1 FROM obj.categories cat WHERE cat.id = :categoryId) " +
+            "AND ROUND(obj.price * :factor + :delta, 2) > 0")
+    int updatePricesByCategory(Long categoryId, double factor, double delta);
 }
@@ -1,6 +1,10 @@
 package com.ceglauskis.dscatalog.repositories;
 
 import com.ceglauskis.dscatalog.entities.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +13,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     User findByEmail(String email);
 
+    Window<User> findBy(ScrollPosition position, Sort sort, Limit limit);
+
 }
@@ -1,15 +1,24 @@
 package com.ceglauskis.dscatalog.resources;
 
 import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.ProductCountRepairDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
 import com.ceglauskis.dscatalog.services.CategoryService;
+import com.ceglauskis.dscatalog.services.ProductService;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.databind.JsonNode;
 
 import java.net.URI;
+import java.util.Map;
 
 @RestController
 @RequestMapping(value = "/categories")
@@ -18,16 +27,55 @@ public class CategoryResource {
     @Autowired
     private CategoryService service;
 
+    @Autowired
+    private ProductService productService;
+
     @GetMapping
-    public ResponseEntity<Page<CategoryDTO>> findAll(Pageable pageable){
+    public ResponseEntity<Page<CategoryDTO>> findAll(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Pageable pageable){
+        String eTag = ETags.of(service.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         Page<CategoryDTO> list = service.findAllPaged(pageable);
-        return ResponseEntity.ok().body(list);
+        return ResponseEntity.ok().eTag(eTag).body(list);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<Page<Map<String, Object>>> findAllFields(
+            @RequestParam(value = "fields") String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Pageable pageable){
+        String eTag = ETags.of(service.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        Page<Map<String, Object>> list = service.findAllPaged(fields, pageable);
+        return ResponseEntity.ok().eTag(eTag).body(list);
     }
 
     @GetMapping(value = "/{id}")
-    public ResponseEntity<CategoryDTO> findById(@PathVariable Long id){
+    public ResponseEntity<CategoryDTO> findById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
         CategoryDTO dto = service.findById(id);
-        return ResponseEntity.ok().body(dto);
+        String eTag = ETags.of(service.versionTag(dto));
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(dto);
+    }
+
+    @GetMapping(value = "/{id}/products")
+    public ResponseEntity<Page<ProductListDTO>> findProducts(@PathVariable Long id, Pageable pageable){
+        Page<ProductListDTO> list = productService.findByCategory(id, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
+    @PostMapping(value = "/product-counts/repair")
+    public ResponseEntity<ProductCountRepairDTO> repairProductCounts(){
+        ProductCountRepairDTO result = service.repairProductCounts();
+        return ResponseEntity.ok().body(result);
     }
 
     @PostMapping
@@ -43,6 +91,12 @@ public class CategoryResource {
         return ResponseEntity.ok().body(dto);
     }
 
+    @PatchMapping(value = "/{id}", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<CategoryDTO> patch(@PathVariable Long id, @RequestBody JsonNode patch){
+        CategoryDTO dto = service.patch(id, patch);
+        return ResponseEntity.ok().body(dto);
+    }
+
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<CategoryDTO> delete(@PathVariable Long id){
         service.delete(id);
@@ -0,0 +1,27 @@
+package com.ceglauskis.dscatalog.resources;
+
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(String version) {
+        return "\"" + version + "\"";
+    }
+
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
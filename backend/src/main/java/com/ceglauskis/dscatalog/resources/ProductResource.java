@@ -1,16 +1,39 @@
 package com.ceglauskis.dscatalog.resources;
 
+import com.ceglauskis.dscatalog.dto.BatchInsertResultDTO;
+import com.ceglauskis.dscatalog.dto.CacheStatsDTO;
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
+import com.ceglauskis.dscatalog.dto.FacetPageDTO;
+import com.ceglauskis.dscatalog.dto.ImportResultDTO;
+import com.ceglauskis.dscatalog.dto.MultiGetDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateResultDTO;
 import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
+import com.ceglauskis.dscatalog.dto.SuggestionDTO;
+import com.ceglauskis.dscatalog.services.ProductImportService;
 import com.ceglauskis.dscatalog.services.ProductService;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.databind.JsonNode;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping(value = "/products")
@@ -19,15 +42,129 @@ public class ProductResource {
     @Autowired
     private ProductService service;
 
+    @Autowired
+    private ProductImportService importService;
+
     @GetMapping
-    public ResponseEntity<Page<ProductDTO>> findAll(Pageable pageable){
-        Page<ProductDTO> list = service.findAllPaged(pageable);
+    public ResponseEntity<Page<ProductListDTO>> findAll(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Pageable pageable){
+        String eTag = ETags.of(service.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        Page<ProductListDTO> list = service.findAllPaged(name, categoryIds, pageable);
+        return ResponseEntity.ok().eTag(eTag).body(list);
+    }
+
+    @GetMapping(params = {"fields", "!after", "!ids"})
+    public ResponseEntity<Page<Map<String, Object>>> findAllFields(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestParam(value = "fields") String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Pageable pageable){
+        String eTag = ETags.of(service.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        Page<Map<String, Object>> list = service.findAllPaged(name, categoryIds, fields, pageable);
+        return ResponseEntity.ok().eTag(eTag).body(list);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetDTO<ProductDTO>> findByIds(@RequestParam(value = "ids") List<Long> ids,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestParam(value = "after", required = false) String after) {
+        if (fields != null || after != null) {
+            throw new InvalidRequestException("ids cannot be combined with fields or after");
+        }
+        MultiGetDTO<ProductDTO> result = service.findByIds(ids);
+        return ResponseEntity.ok().body(result);
+    }
+
+    @PostMapping(value = "/multi-get")
+    public ResponseEntity<MultiGetDTO<ProductDTO>> findByIdsPost(@RequestBody List<Long> ids) {
+        MultiGetDTO<ProductDTO> result = service.findByIds(ids);
+        return ResponseEntity.ok().body(result);
+    }
+
+    @GetMapping(params = {"after", "!ids"})
+    public ResponseEntity<CursorPageDTO<ProductDTO>> findAllByCursor(
+            @RequestParam(value = "after", defaultValue = "") String after,
+            @RequestParam(value = "fields", required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Pageable pageable) {
+        if (fields != null) {
+            throw new InvalidRequestException("fields cannot be combined with after");
+        }
+        String eTag = ETags.of(service.getCatalogVersion());
+        if (ETags.matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        CursorPageDTO<ProductDTO> list = service.findAllByCursor(after, pageable);
+        return ResponseEntity.ok().eTag(eTag).body(list);
+    }
+
+    @GetMapping(value = "/search")
+    public ResponseEntity<Page<ProductDTO>> search(@RequestParam(value = "q", defaultValue = "") String query,
+            @RequestParam(value = "mode", defaultValue = "fulltext") String mode,
+            Pageable pageable){
+        Page<ProductDTO> list = service.search(query, mode, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
+    @GetMapping(value = "/facets")
+    public ResponseEntity<FacetPageDTO> facets(
+            @RequestParam(value = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestParam(value = "minPrice", required = false) Double minPrice,
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            Pageable pageable){
+        FacetPageDTO page = service.facets(categoryIds, minPrice, maxPrice, pageable);
+        return ResponseEntity.ok().body(page);
+    }
+
+    @GetMapping(value = "/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") int limit){
+        List<SuggestionDTO> list = service.suggest(prefix, limit);
         return ResponseEntity.ok().body(list);
     }
 
+    @GetMapping(value = "/export")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        try (OutputStream out = response.getOutputStream()) {
+            service.exportAll(out);
+        }
+    }
+
+    @GetMapping(value = "/cache/stats")
+    public ResponseEntity<CacheStatsDTO> cacheStats(){
+        CacheStatsDTO stats = service.getCacheStats();
+        return ResponseEntity.ok().body(stats);
+    }
+
     @GetMapping(value = "/{id}")
-    public ResponseEntity<ProductDTO> findById(@PathVariable Long id){
+    public ResponseEntity<ProductDTO> findById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+        if (ifNoneMatch != null) {
+            String version = service.findVersionTag(id);
+            if (version != null && ETags.matches(ifNoneMatch, ETags.of(version))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+            }
+        }
         ProductDTO dto = service.findById(id);
+        return ResponseEntity.ok().eTag(ETags.of(service.versionTag(dto))).body(dto);
+    }
+
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> findByIdFields(@PathVariable Long id,
+            @RequestParam(value = "fields") String fields){
+        Map<String, Object> dto = service.findById(id, fields);
         return ResponseEntity.ok().body(dto);
     }
 
@@ -38,12 +175,42 @@ public class ProductResource {
         return ResponseEntity.created(uri).body(dto);
     }
 
+    @PostMapping(value = "/batch")
+    public ResponseEntity<BatchInsertResultDTO> insertBatch(@RequestBody List<ProductDTO> dtos){
+        BatchInsertResultDTO result = service.insertBatch(dtos);
+        return ResponseEntity.ok().body(result);
+    }
+
+    @PatchMapping(value = "/prices")
+    public ResponseEntity<PriceUpdateResultDTO> updatePrices(@RequestBody PriceUpdateDTO dto){
+        PriceUpdateResultDTO result = service.updatePrices(dto);
+        return ResponseEntity.ok().body(result);
+    }
+
+    @PostMapping(value = "/import", consumes = ProductImportService.NDJSON)
+    public ResponseEntity<ImportResultDTO> importNdjson(InputStream body) throws IOException {
+        ImportResultDTO result = importService.importNdjson(body);
+        return ResponseEntity.ok().body(result);
+    }
+
+    @PostMapping(value = "/import", consumes = ProductImportService.CSV)
+    public ResponseEntity<ImportResultDTO> importCsv(InputStream body) throws IOException {
+        ImportResultDTO result = importService.importCsv(body);
+        return ResponseEntity.ok().body(result);
+    }
+
     @PutMapping(value = "/{id}")
     public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto){
         dto = service.update(id, dto);
         return ResponseEntity.ok().body(dto);
     }
 
+    @PatchMapping(value = "/{id}", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ProductDTO> patch(@PathVariable Long id, @RequestBody JsonNode patch){
+        ProductDTO dto = service.patch(id, patch);
+        return ResponseEntity.ok().body(dto);
+    }
+
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<ProductDTO> delete(@PathVariable Long id){
         service.delete(id);
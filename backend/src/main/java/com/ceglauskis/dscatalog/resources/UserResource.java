@@ -1,18 +1,24 @@
 package com.ceglauskis.dscatalog.resources;
 
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
 import com.ceglauskis.dscatalog.dto.users.UserDTO;
 import com.ceglauskis.dscatalog.dto.users.UserInsertDTO;
 import com.ceglauskis.dscatalog.dto.users.UserUpdateDTO;
 import com.ceglauskis.dscatalog.services.UserService;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tools.jackson.databind.JsonNode;
 
 import java.net.URI;
+import java.util.Map;
 
 @RestController
 @RequestMapping(value = "/users")
@@ -27,12 +33,37 @@ public class UserResource {
         return ResponseEntity.ok().body(list);
     }
 
+    @GetMapping(params = {"fields", "!after"})
+    public ResponseEntity<Page<Map<String, Object>>> findAllFields(
+            @RequestParam(value = "fields") String fields, Pageable pageable) {
+        Page<Map<String, Object>> list = service.findAllPaged(fields, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPageDTO<UserDTO>> findAllByCursor(
+            @RequestParam(value = "after", defaultValue = "") String after,
+            @RequestParam(value = "fields", required = false) String fields, Pageable pageable) {
+        if (fields != null) {
+            throw new InvalidRequestException("fields cannot be combined with after");
+        }
+        CursorPageDTO<UserDTO> list = service.findAllByCursor(after, pageable);
+        return ResponseEntity.ok().body(list);
+    }
+
     @GetMapping(value = "/{id}")
     public ResponseEntity<UserDTO> findById(@PathVariable Long id) {
         UserDTO dto = service.findById(id);
         return ResponseEntity.ok().body(dto);
     }
 
+    @GetMapping(value = "/{id}", params = "fields")
+    public ResponseEntity<Map<String, Object>> findByIdFields(@PathVariable Long id,
+            @RequestParam(value = "fields") String fields) {
+        Map<String, Object> dto = service.findById(id, fields);
+        return ResponseEntity.ok().body(dto);
+    }
+
     @PostMapping
     public ResponseEntity<UserDTO> insert(@Valid @RequestBody UserInsertDTO dto) {
         UserDTO newDto = service.insert(dto);
@@ -46,6 +77,12 @@ public class UserResource {
         return ResponseEntity.ok().body(newDto);
     }
 
+    @PatchMapping(value = "/{id}", consumes = {JsonMergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<UserDTO> patch(@PathVariable Long id, @RequestBody JsonNode patch){
+        UserDTO dto = service.patch(id, patch);
+        return ResponseEntity.ok().body(dto);
+    }
+
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<UserDTO> delete(@PathVariable Long id) {
         service.delete(id);
@@ -1,8 +1,12 @@
 package com.ceglauskis.dscatalog.resources.exceptions;
 
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
+import com.ceglauskis.dscatalog.services.exceptions.FieldValidationException;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.exceptions.ServiceUnavailableException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -39,6 +43,42 @@ public class ResourceExceptionHandler {
         return ResponseEntity.status(status).body(standardError);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<StandardError> conflict(OptimisticLockingFailureException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.CONFLICT;
+        StandardError standardError = new StandardError();
+        standardError.setTimestamp(Instant.now());
+        standardError.setStatus(status.value());
+        standardError.setError("Concurrent modification");
+        standardError.setMessage("Resource was modified by another request, reload it and try again");
+        standardError.setPath(request.getRequestURI());
+        return ResponseEntity.status(status).body(standardError);
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<StandardError> invalidRequest(InvalidRequestException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError standardError = new StandardError();
+        standardError.setTimestamp(Instant.now());
+        standardError.setStatus(status.value());
+        standardError.setError("Invalid request");
+        standardError.setMessage(e.getMessage());
+        standardError.setPath(request.getRequestURI());
+        return ResponseEntity.status(status).body(standardError);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<StandardError> unavailable(ServiceUnavailableException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        StandardError standardError = new StandardError();
+        standardError.setTimestamp(Instant.now());
+        standardError.setStatus(status.value());
+        standardError.setError("Service unavailable");
+        standardError.setMessage(e.getMessage());
+        standardError.setPath(request.getRequestURI());
+        return ResponseEntity.status(status).body(standardError);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ValidationError> validation(MethodArgumentNotValidException e, HttpServletRequest request){
         HttpStatus status = HttpStatus.UNPROCESSABLE_CONTENT;
@@ -55,4 +95,21 @@ public class ResourceExceptionHandler {
 
         return ResponseEntity.status(status).body(validationError);
     }
+
+    @ExceptionHandler(FieldValidationException.class)
+    public ResponseEntity<ValidationError> fieldValidation(FieldValidationException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.UNPROCESSABLE_CONTENT;
+        ValidationError validationError = new ValidationError();
+        validationError.setTimestamp(Instant.now());
+        validationError.setStatus(status.value());
+        validationError.setError("Validation exception");
+        validationError.setMessage(e.getMessage());
+        validationError.setPath(request.getRequestURI());
+
+        for (FieldMessage fieldMessage : e.getErrors()){
+            validationError.addError(fieldMessage.getFieldName(), fieldMessage.getMessage());
+        }
+
+        return ResponseEntity.status(status).body(validationError);
+    }
 }
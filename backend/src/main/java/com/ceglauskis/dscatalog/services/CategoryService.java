@@ -1,38 +1,107 @@
 package com.ceglauskis.dscatalog.services;
 
 import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.ProductCountDriftDTO;
+import com.ceglauskis.dscatalog.dto.ProductCountRepairDTO;
 import com.ceglauskis.dscatalog.entities.Category;
 import com.ceglauskis.dscatalog.repositories.CategoryRepository;
+import com.ceglauskis.dscatalog.services.cache.CatalogVersion;
+import com.ceglauskis.dscatalog.services.cache.LookupSnapshot;
+import com.ceglauskis.dscatalog.services.counters.CategoryCountDeltas;
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import com.ceglauskis.dscatalog.services.events.CategoryCountsChangedEvent;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.fields.FieldSelection;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tools.jackson.databind.JsonNode;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class CategoryService {
 
+    private static final Logger log = LoggerFactory.getLogger(CategoryService.class);
+
+    private static final Map<String, Comparator<CategoryDTO>> SORTABLE_PROPERTIES = Map.of(
+            "id", Comparator.comparing(CategoryDTO::getId),
+            "name", Comparator.comparing(CategoryDTO::getNameNormalized, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    private static final Set<String> PATCHABLE = Set.of("name", "version");
+
+    private static final Map<String, Function<CategoryDTO, Object>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("id", CategoryDTO::getId);
+        FIELDS.put("name", CategoryDTO::getName);
+        FIELDS.put("version", CategoryDTO::getVersion);
+        FIELDS.put("productCount", CategoryDTO::getProductCount);
+    }
+
     @Autowired
     private CategoryRepository repository;
 
-    @Transactional(readOnly = true)
-    public Page<CategoryDTO> findAllPaged(Pageable pageable){;
-        Page<Category> page = repository.findAll(pageable);
-        return page.map(x -> new CategoryDTO(x));
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private JsonMergePatch mergePatch;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReadOnlyTransactions readOnlyTransactions;
+
+    private volatile LookupSnapshot<CategoryDTO> snapshot;
+
+    public Page<CategoryDTO> findAllPaged(Pageable pageable){
+        return snapshot().findAll(pageable);
+    }
+
+    public Page<Map<String, Object>> findAllPaged(String fields, Pageable pageable){
+        return snapshot().findAll(pageable).map(FieldSelection.parse(fields).writer(FIELDS));
     }
 
-    @Transactional(readOnly = true)
     public CategoryDTO findById(Long id){
-        Optional<Category> obj = repository.findById(id);
-        Category entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-        return new CategoryDTO(entity);
+        return snapshot().findById(id).orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+    }
+
+    public String versionTag(CategoryDTO dto) {
+        return dto.getId() + "." + dto.getVersion() + "." + dto.getProductCount();
+    }
+
+    public String getCatalogVersion() {
+        return catalogVersion.getCategoryListVersion();
+    }
+
+    public boolean existsById(Long id) {
+        return id != null && snapshot().containsId(id);
     }
 
     @Transactional
@@ -40,6 +109,7 @@ public class CategoryService {
         Category entity = new Category();
         copyDtoToEntity(dto, entity);
         entity = repository.save(entity);
+        eventPublisher.publishEvent(new CategoryChangedEvent(entity.getId()));
         return new CategoryDTO(entity);
     }
 
@@ -49,12 +119,25 @@ public class CategoryService {
             Category entity = repository.getReferenceById(id);
             entity.setName(dto.getName());
             copyDtoToEntity(dto, entity);
+            // flush so the returned version is the incremented one a client sends back next time
+            repository.flush();
+            eventPublisher.publishEvent(new CategoryChangedEvent(id));
             return new CategoryDTO(entity);
         }catch (EntityNotFoundException e){
             throw new ResourceNotFoundException("Id not found: " + id);
         }
     }
 
+    @Transactional
+    public CategoryDTO patch(Long id, JsonNode patch) {
+        Category entity = repository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Id not found: " + id));
+        CategoryDTO dto = mergePatch.apply(new CategoryDTO(entity), patch, CategoryDTO.class, PATCHABLE);
+        if (dto.getVersion() != null && !dto.getVersion().equals(entity.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Category.class, id);
+        }
+        return update(id, dto);
+    }
+
     @Transactional(propagation = Propagation.SUPPORTS)
     public void delete(Long id) {
         if (!repository.existsById(id)) {
@@ -62,10 +145,90 @@ public class CategoryService {
         }
         try {
             repository.deleteById(id);
+            eventPublisher.publishEvent(new CategoryChangedEvent(id));
         }
         catch (DataIntegrityViolationException e) {
-            throw new DatabaseException("Integrity violation");
+            throw new DatabaseException("Integrity violation", e);
+        }
+    }
+
+    // joins the caller's product write so counters commit or roll back with it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyProductCountDeltas(CategoryCountDeltas deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        deltas.idsByDelta().forEach((delta, categoryIds) -> {
+            repository.addProductCount(categoryIds, delta);
+            ids.addAll(categoryIds);
+        });
+        eventPublisher.publishEvent(new CategoryCountsChangedEvent(ids));
+    }
+
+    @Transactional
+    public ProductCountRepairDTO repairProductCounts() {
+        List<Object[]> rows = repository.findProductCounts();
+        List<ProductCountDriftDTO> drift = new ArrayList<>();
+        for (Object[] row : rows) {
+            long stored = row[1] != null ? (Long) row[1] : 0L;
+            long actual = (Long) row[2];
+            if (stored != actual) {
+                drift.add(new ProductCountDriftDTO((Long) row[0], stored, actual));
+            }
+        }
+        if (!drift.isEmpty()) {
+            List<Long> ids = drift.stream().map(ProductCountDriftDTO::getCategoryId).toList();
+            repository.recomputeProductCounts(ids);
+            eventPublisher.publishEvent(new CategoryCountsChangedEvent(ids));
+            log.warn("Repaired product counts of {} categories: {}", drift.size(), ids);
+        }
+        return new ProductCountRepairDTO(rows.size(), drift);
+    }
+
+    @Scheduled(cron = "${dscatalog.categories.count-repair-cron:-}")
+    public void scheduledRepairProductCounts() {
+        repairProductCounts();
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryCommitted(CategoryChangedEvent event) {
+        loadSnapshot(true);
+    }
+
+    // only the counters moved, so just the affected entries are refreshed instead of every category
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryCountsCommitted(CategoryCountsChangedEvent event) {
+        refreshProductCounts(event.getIds());
+    }
+
+    private LookupSnapshot<CategoryDTO> snapshot() {
+        LookupSnapshot<CategoryDTO> current = snapshot;
+        return current != null ? current : loadSnapshot(false);
+    }
+
+    private synchronized LookupSnapshot<CategoryDTO> loadSnapshot(boolean reload) {
+        if (reload || snapshot == null) {
+            snapshot = readOnlyTransactions.execute(status -> new LookupSnapshot<>(
+                    repository.findAll().stream().map(x -> new CategoryDTO(x, x.getProductCount())).toList(), CategoryDTO::getId, SORTABLE_PROPERTIES));
+        }
+        return snapshot;
+    }
+
+    // read and swap under the same lock so an older read never replaces a newer one
+    private synchronized void refreshProductCounts(Collection<Long> ids) {
+        LookupSnapshot<CategoryDTO> current = snapshot;
+        if (current == null || ids.isEmpty()) {
+            return;
         }
+        Map<Long, Long> counts = new HashMap<>();
+        readOnlyTransactions.executeWithoutResult(status ->
+                repository.findProductCountsByIds(ids).forEach(row -> counts.put((Long) row[0], (Long) row[1])));
+        List<CategoryDTO> items = current.getItems().stream()
+                .map(x -> counts.containsKey(x.getId()) ? new CategoryDTO(x, counts.get(x.getId())) : x)
+                .toList();
+        snapshot = new LookupSnapshot<>(items, CategoryDTO::getId, SORTABLE_PROPERTIES);
     }
 
     private void copyDtoToEntity(CategoryDTO dto, Category entity) {
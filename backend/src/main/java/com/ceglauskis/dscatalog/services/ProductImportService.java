@@ -0,0 +1,301 @@
+package com.ceglauskis.dscatalog.services;
+
+import com.ceglauskis.dscatalog.dto.ImportResultDTO;
+import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductExportDTO;
+import com.ceglauskis.dscatalog.entities.Category;
+import com.ceglauskis.dscatalog.entities.Product;
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.counters.CategoryCountDeltas;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import com.ceglauskis.dscatalog.services.imports.CsvReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class ProductImportService {
+
+    public static final String NDJSON = "application/x-ndjson";
+    public static final String CSV = "text/csv";
+
+    private static final List<String> CSV_COLUMNS = List.of("id", "name", "description", "price", "imgUrl", "date", "categoryIds");
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${dscatalog.import.chunk-size:1000}")
+    private int chunkSize;
+
+    public ImportResultDTO importNdjson(InputStream in) throws IOException {
+        ImportResultDTO result = new ImportResultDTO();
+        ObjectReader objectReader = objectMapper.readerFor(ProductExportDTO.class);
+        BufferedReader reader = newReader(in);
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                ProductExportDTO dto = objectReader.readValue(line);
+                addRow(new ImportRow(lineNumber, dto), chunk, result);
+            } catch (JacksonException e) {
+                result.reject(lineNumber, null, "Malformed JSON");
+            }
+        }
+        writeChunk(chunk, result);
+        return result;
+    }
+
+    public ImportResultDTO importCsv(InputStream in) throws IOException {
+        ImportResultDTO result = new ImportResultDTO();
+        CsvReader reader = new CsvReader(newReader(in));
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            return result;
+        }
+        List<String> names = header.stream().map(String::trim).toList();
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(CSV_COLUMNS.get(i));
+        }
+        if (columns[CSV_COLUMNS.indexOf("name")] < 0 || columns[CSV_COLUMNS.indexOf("price")] < 0) {
+            throw new InvalidRequestException("CSV header must contain at least name and price columns");
+        }
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = reader.getLineNumber();
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                lineNumber = reader.getLineNumber();
+                continue;
+            }
+            try {
+                addRow(new ImportRow(lineNumber, fromCsv(record, columns)), chunk, result);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                result.reject(lineNumber, null, "Malformed value: " + e.getMessage());
+            }
+            lineNumber = reader.getLineNumber();
+        }
+        writeChunk(chunk, result);
+        return result;
+    }
+
+    // spreadsheet exports often start with a UTF-8 byte order mark, which would hide the first column
+    private BufferedReader newReader(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return reader;
+    }
+
+    private ProductExportDTO fromCsv(List<String> record, int[] columns) {
+        ProductExportDTO dto = new ProductExportDTO();
+        String id = column(record, columns[0]);
+        dto.setId(id != null ? Long.valueOf(id) : null);
+        dto.setName(column(record, columns[1]));
+        dto.setDescription(column(record, columns[2]));
+        String price = column(record, columns[3]);
+        dto.setPrice(price != null ? Double.valueOf(price) : null);
+        dto.setImgUrl(column(record, columns[4]));
+        String date = column(record, columns[5]);
+        dto.setDate(date != null ? Instant.parse(date) : null);
+        String categoryIds = column(record, columns[6]);
+        if (categoryIds != null) {
+            dto.setCategoryIds(Arrays.stream(categoryIds.split("\\|")).map(String::trim).map(Long::valueOf).toList());
+        }
+        return dto;
+    }
+
+    private String column(List<String> record, int index) {
+        if (index < 0 || index >= record.size() || record.get(index).isBlank()) {
+            return null;
+        }
+        return record.get(index).trim();
+    }
+
+    private void addRow(ImportRow row, List<ImportRow> chunk, ImportResultDTO result) {
+        if (!validate(row, result)) {
+            return;
+        }
+        chunk.add(row);
+        if (chunk.size() == chunkSize) {
+            writeChunk(chunk, result);
+        }
+    }
+
+    private boolean validate(ImportRow row, ImportResultDTO result) {
+        ProductExportDTO dto = row.dto;
+        ProductDTO productDTO = new ProductDTO(dto.getId(), dto.getName(), dto.getDescription(), dto.getPrice(), dto.getImgUrl(), dto.getDate());
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(productDTO);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<ProductDTO> violation = violations.iterator().next();
+            result.reject(row.lineNumber, violation.getPropertyPath().toString(), violation.getMessage());
+            return false;
+        }
+        if (dto.getCategoryIds() == null) {
+            dto.setCategoryIds(List.of());
+        }
+        for (Long categoryId : dto.getCategoryIds()) {
+            if (categoryId == null || !categoryService.existsById(categoryId)) {
+                result.reject(row.lineNumber, "categoryIds", "Category not found: " + categoryId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeChunk(List<ImportRow> chunk, ImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            write(chunk, result);
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            // a single bad row should not drop the good ones, so the failed chunk is retried row by row
+            for (ImportRow row : chunk) {
+                try {
+                    write(List.of(row), result);
+                } catch (DataAccessException | PersistenceException | TransactionException rowException) {
+                    result.reject(row.lineNumber, null,
+                            "Row rolled back: " + NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private void write(List<ImportRow> rows, ImportResultDTO result) {
+        ChunkResult chunkResult = new ChunkResult();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> upsert(rows, chunkResult));
+        result.addInserted(chunkResult.inserted);
+        result.addUpdated(chunkResult.updated);
+        chunkResult.missing.forEach(row -> result.reject(row.lineNumber, "id", "Id not found: " + row.dto.getId()));
+    }
+
+    private void upsert(List<ImportRow> chunk, ChunkResult chunkResult) {
+        List<Long> ids = chunk.stream().map(row -> row.dto.getId()).filter(Objects::nonNull).distinct().toList();
+        Map<Long, Product> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+            repository.findProductsWithCategories(ids).forEach(x -> existing.put(x.getId(), x));
+        }
+
+        List<Long> touched = new ArrayList<>(chunk.size());
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+        for (ImportRow row : chunk) {
+            Product entity;
+            if (row.dto.getId() == null) {
+                entity = new Product();
+                copyRowToEntity(row.dto, entity, deltas);
+                entityManager.persist(entity);
+                chunkResult.inserted++;
+            } else {
+                entity = existing.get(row.dto.getId());
+                if (entity == null) {
+                    chunkResult.missing.add(row);
+                    continue;
+                }
+                copyRowToEntity(row.dto, entity, deltas);
+                chunkResult.updated++;
+            }
+            touched.add(entity.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        categoryService.applyProductCountDeltas(deltas);
+        if (!touched.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(touched));
+        }
+    }
+
+    private void copyRowToEntity(ProductExportDTO dto, Product entity, CategoryCountDeltas deltas) {
+        entity.setName(dto.getName());
+        entity.setDescription(dto.getDescription());
+        entity.setDate(dto.getDate());
+        entity.setImgUrl(dto.getImgUrl());
+        entity.setPrice(dto.getPrice());
+
+        Set<Long> categoryIds = new HashSet<>(dto.getCategoryIds());
+        Set<Long> current = entity.getCategories().stream().map(Category::getId).collect(Collectors.toSet());
+        if (!current.equals(categoryIds)) {
+            deltas.add(current, categoryIds);
+            entity.getCategories().removeIf(x -> !categoryIds.contains(x.getId()));
+            categoryIds.removeAll(current);
+            categoryIds.forEach(id -> entity.getCategories().add(entityManager.getReference(Category.class, id)));
+        }
+    }
+
+    private static class ImportRow {
+
+        private final int lineNumber;
+        private final ProductExportDTO dto;
+
+        private ImportRow(int lineNumber, ProductExportDTO dto) {
+            this.lineNumber = lineNumber;
+            this.dto = dto;
+        }
+    }
+
+    private static class ChunkResult {
+
+        private long inserted;
+        private long updated;
+        private final List<ImportRow> missing = new ArrayList<>();
+    }
+}
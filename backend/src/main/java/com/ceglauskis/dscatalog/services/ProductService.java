@@ -1,43 +1,338 @@
 package com.ceglauskis.dscatalog.services;
 
+import com.ceglauskis.dscatalog.dto.BatchInsertResultDTO;
+import com.ceglauskis.dscatalog.dto.CacheStatsDTO;
 import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
+import com.ceglauskis.dscatalog.dto.FacetCountDTO;
+import com.ceglauskis.dscatalog.dto.FacetPageDTO;
+import com.ceglauskis.dscatalog.dto.MultiGetDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateDTO;
+import com.ceglauskis.dscatalog.dto.ProductExportDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
+import com.ceglauskis.dscatalog.dto.SuggestionDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateResultDTO;
 import com.ceglauskis.dscatalog.dto.ProductDTO;
 import com.ceglauskis.dscatalog.entities.Category;
 import com.ceglauskis.dscatalog.entities.Product;
 import com.ceglauskis.dscatalog.repositories.CategoryRepository;
 import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.cache.CatalogVersion;
+import com.ceglauskis.dscatalog.services.cache.ProductCache;
+import com.ceglauskis.dscatalog.services.counters.CategoryCountDeltas;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.fields.FieldProjector;
+import com.ceglauskis.dscatalog.services.fields.FieldSelection;
+import com.ceglauskis.dscatalog.services.fields.ProjectionSpec;
+import com.ceglauskis.dscatalog.services.pagination.KeysetCursor;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
+import com.ceglauskis.dscatalog.services.search.FacetResult;
+import com.ceglauskis.dscatalog.services.search.ProductFacetIndex;
+import com.ceglauskis.dscatalog.services.search.ProductSearchIndex;
+import com.ceglauskis.dscatalog.services.search.SearchResult;
+import com.ceglauskis.dscatalog.services.search.SuggestIndex;
+import com.ceglauskis.dscatalog.util.TextNormalizer;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class ProductService {
 
+    private static final Map<String, Function<String, Object>> CURSOR_KEYS = Map.of(
+            "id", Long::valueOf,
+            "nameNormalized", x -> x,
+            "price", Double::valueOf,
+            "date", Instant::parse);
+
+    private static final int MAX_SUGGESTIONS = 50;
+
+    private static final int MAX_MULTI_GET = 500;
+
+    private static final int PRICE_UPDATE_CHUNK_SIZE = 1000;
+
+    private static final ProjectionSpec FIELDS = new ProjectionSpec("Product")
+            .column("name").sortBy("name", "nameNormalized")
+            .column("description")
+            .column("price")
+            .column("imgUrl")
+            .column("date")
+            .column("version")
+            .association("categories", "categories", new ProjectionSpec("Category").column("name"));
+
+    private static final Set<String> PATCHABLE = Set.of("name", "description", "price", "imgUrl", "date", "categories", "version");
+
     @Autowired
     private ProductRepository repository;
 
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private SuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private FieldProjector fieldProjector;
+
+    @Autowired
+    private JsonMergePatch mergePatch;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Transactional(readOnly = true)
+    public Page<ProductListDTO> findAllPaged(Pageable pageable) {
+        return repository.findAllForList(normalizedNameSort(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductListDTO> findAllPaged(String name, List<Long> categoryIds, Pageable pageable) {
+        if (name.isBlank() && categoryIds.isEmpty()) {
+            return findAllPaged(pageable);
+        }
+        String normalizedName = TextNormalizer.normalize(name);
+        return categoryIds.isEmpty()
+                ? repository.searchByName(normalizedName, normalizedNameSort(pageable))
+                : repository.search(categoryIds, normalizedName, normalizedNameSort(pageable));
+    }
+
+    // the total comes from the facet bitmaps so listing a category never runs a COUNT
     @Transactional(readOnly = true)
-    public Page<ProductDTO> findAllPaged(Pageable pageable) {
-        Page<Product> page = repository.findAll(pageable);
-        return page.map(x -> new ProductDTO(x));
+    public Page<ProductListDTO> findByCategory(Long categoryId, Pageable pageable) {
+        if (!categoryService.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Entity not found");
+        }
+        List<ProductListDTO> content = repository.findListByCategory(categoryId, normalizedNameSort(pageable));
+        return new PageImpl<>(content, pageable, facetIndex.countByCategory(categoryId));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllPaged(String name, List<Long> categoryIds, String fields, Pageable pageable) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+        if (!name.isBlank()) {
+            conditions.add("obj.nameNormalized LIKE CONCAT('%', :name, '%')");
+            parameters.put("name", TextNormalizer.normalize(name));
+        }
+        if (!categoryIds.isEmpty()) {
+            conditions.add("obj.id IN (SELECT p.id FROM Product p JOIN p.categories cat WHERE cat.id IN :categoryIds)");
+            parameters.put("categoryIds", categoryIds);
+        }
+        return fieldProjector.findPage(FIELDS, selection, String.join(" AND ", conditions), parameters, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> findById(Long id, String fields) {
+        return fieldProjector.findById(FIELDS, FieldSelection.parse(fields), id)
+                .orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> search(String query, String mode, Pageable pageable) {
+        if (query == null || query.isBlank()) {
+            throw new InvalidRequestException("Search query is required");
+        }
+        SearchResult result = switch (mode) {
+            case "fulltext" -> searchIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+            case "fuzzy" -> searchIndex.fuzzySearch(query, pageable.getOffset(), pageable.getPageSize());
+            default -> throw new InvalidRequestException("Unknown search mode: " + mode);
+        };
+        return fetchWithCategories(new PageImpl<>(result.getIds(), pageable, result.getTotal()), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public FacetPageDTO facets(List<Long> categoryIds, Double minPrice, Double maxPrice, Pageable pageable) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new InvalidRequestException("minPrice should not be greater than maxPrice");
+        }
+        FacetResult result = facetIndex.query(categoryIds, minPrice, maxPrice, pageable.getOffset(), pageable.getPageSize());
+        Page<ProductDTO> page = fetchWithCategories(new PageImpl<>(result.getIds(), pageable, result.getTotal()), pageable);
+
+        List<FacetCountDTO> categories = new ArrayList<>();
+        result.getCategoryCounts().forEach((id, count) -> {
+            String name = categoryService.existsById(id) ? categoryService.findById(id).getName() : null;
+            categories.add(FacetCountDTO.category(id, name, count));
+        });
+        double[] boundaries = result.getPriceBoundaries();
+        long[] counts = result.getPriceCounts();
+        List<FacetCountDTO> prices = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            Double from = i == 0 ? null : boundaries[i - 1];
+            Double to = i == boundaries.length ? null : boundaries[i];
+            prices.add(FacetCountDTO.priceRange(from, to, counts[i]));
+        }
+        return new FacetPageDTO(page.getContent(), pageable.getPageNumber(), pageable.getPageSize(),
+                result.getTotal(), categories, prices);
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new InvalidRequestException("Limit should be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return suggestIndex.suggest(prefix, limit).stream().map(SuggestionDTO::new).toList();
     }
 
     @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> findAllByCursor(String after, Pageable pageable) {
+        KeysetCursor cursor = KeysetCursor.of(after, normalizedNameSort(pageable).getSort(), CURSOR_KEYS);
+        Window<Product> window = repository.findBy(cursor.getPosition(), cursor.getSort(), Limit.of(pageable.getPageSize()));
+        List<Long> ids = window.stream().map(Product::getId).toList();
+        Map<Long, Product> products = new HashMap<>();
+        if (!ids.isEmpty()) {
+            repository.findProductsWithCategories(ids).forEach(x -> products.put(x.getId(), x));
+        }
+        List<ProductDTO> content = ids.stream().map(products::get).filter(Objects::nonNull)
+                .map(x -> new ProductDTO(x, x.getCategories())).toList();
+        return new CursorPageDTO<>(content, pageable.getPageSize(), cursor.next(window));
+    }
+
+    // no transaction of its own: cache hits and coalesced waiters never touch a connection,
+    // only the caller that actually loads runs the repository query
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO findById(Long id){
-        Optional<Product> obj = repository.findById(id);
-        Product entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-        return new ProductDTO(entity, entity.getCategories());
+        return productCache.get(id, key -> {
+            Optional<Product> obj = repository.findById(key);
+            Product entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+            return new ProductDTO(entity, entity.getCategories());
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public MultiGetDTO<ProductDTO> findByIds(List<Long> ids) {
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty() || distinct.size() > MAX_MULTI_GET) {
+            throw new InvalidRequestException("Inform between 1 and " + MAX_MULTI_GET + " ids");
+        }
+        Map<Long, ProductDTO> found = productCache.getAll(distinct, misses -> {
+            Map<Long, ProductDTO> loaded = new HashMap<>();
+            repository.findProductsWithCategories(List.copyOf(misses))
+                    .forEach(x -> loaded.put(x.getId(), new ProductDTO(x, x.getCategories())));
+            return loaded;
+        });
+        List<ProductDTO> content = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinct) {
+            ProductDTO dto = found.get(id);
+            if (dto != null) {
+                content.add(dto);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new MultiGetDTO<>(content, missing);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ProductExportDTO.class);
+        try (Stream<Object[]> rows = repository.streamAllWithCategoryIds()) {
+            ProductExportDTO current = null;
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                Product product = (Product) row[0];
+                // rows come ordered by product id, one per category link
+                if (current == null || !current.getId().equals(product.getId())) {
+                    if (current != null) {
+                        writeLine(writer, current, out);
+                    }
+                    current = new ProductExportDTO(product);
+                }
+                if (row[1] != null) {
+                    current.getCategoryIds().add((Long) row[1]);
+                }
+                entityManager.detach(product);
+            }
+            if (current != null) {
+                writeLine(writer, current, out);
+            }
+        }
+        out.flush();
+    }
+
+    public String findVersionTag(Long id) {
+        ProductDTO cached = productCache.getIfPresent(id);
+        Integer version = cached != null ? cached.getVersion() : repository.findVersionById(id).orElse(null);
+        return version != null ? versionTag(id, version) : null;
+    }
+
+    public String versionTag(ProductDTO dto) {
+        return versionTag(dto.getId(), dto.getVersion());
+    }
+
+    public String getCatalogVersion() {
+        return catalogVersion.getProductsVersion();
+    }
+
+    public CacheStatsDTO getCacheStats() {
+        return productCache.getStats();
     }
 
     @Transactional
@@ -45,34 +340,207 @@ public class ProductService {
         Product entity = new Product();
         copyDtoToEntity(dto, entity);
         entity = repository.save(entity);
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+        deltas.add(List.of(), categoryIds(entity));
+        categoryService.applyProductCountDeltas(deltas);
+        eventPublisher.publishEvent(new ProductChangedEvent(entity.getId()));
         return new ProductDTO(entity);
     }
 
+    @Transactional
+    public BatchInsertResultDTO insertBatch(List<ProductDTO> dtos) {
+        BatchInsertResultDTO result = new BatchInsertResultDTO(dtos.size());
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+        int pending = 0;
+        for (int i = 0; i < dtos.size(); i++) {
+            ProductDTO dto = dtos.get(i);
+            if (!validateBatchItem(i, dto, result)) {
+                continue;
+            }
+            Product entity = new Product();
+            copyDtoToEntity(dto, entity);
+            entityManager.persist(entity);
+            result.addId(entity.getId());
+            deltas.add(List.of(), categoryIds(entity));
+            // keep the persistence context small so memory stays flat for large feeds
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        categoryService.applyProductCountDeltas(deltas);
+        if (!result.getIds().isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(result.getIds()));
+        }
+        return result;
+    }
+
+    @Transactional
+    public PriceUpdateResultDTO updatePrices(PriceUpdateDTO dto) {
+        List<Long> ids = dto.getIds() != null ? dto.getIds().stream().filter(Objects::nonNull).distinct().toList() : List.of();
+        if (ids.isEmpty() == (dto.getCategoryId() == null)) {
+            throw new InvalidRequestException("Inform either ids or categoryId");
+        }
+        if (Stream.of(dto.getPrice(), dto.getPercentage(), dto.getDelta()).filter(Objects::nonNull).count() != 1) {
+            throw new InvalidRequestException("Inform exactly one of price, percentage or delta");
+        }
+        double factor = 1.0;
+        double delta = 0.0;
+        if (dto.getPrice() != null) {
+            if (dto.getPrice() <= 0) {
+                throw new InvalidRequestException("Price should be a positive value");
+            }
+            factor = 0.0;
+            delta = dto.getPrice();
+        } else if (dto.getPercentage() != null) {
+            factor = 1.0 + dto.getPercentage() / 100.0;
+        } else {
+            delta = dto.getDelta();
+        }
+
+        // rows whose price would not stay positive are left untouched and not counted
+        int affected = 0;
+        if (dto.getCategoryId() != null) {
+            if (!categoryService.existsById(dto.getCategoryId())) {
+                throw new InvalidRequestException("Category not found: " + dto.getCategoryId());
+            }
+            affected = repository.updatePricesByCategory(dto.getCategoryId(), factor, delta);
+            if (affected > 0) {
+                // the category is read back in bounded keyset chunks; a row the guard skipped reloads unchanged
+                List<Long> chunk = repository.findIdsByCategoryAfter(dto.getCategoryId(), 0L, Limit.of(PRICE_UPDATE_CHUNK_SIZE));
+                while (!chunk.isEmpty()) {
+                    eventPublisher.publishEvent(new ProductChangedEvent(chunk));
+                    chunk = repository.findIdsByCategoryAfter(dto.getCategoryId(), chunk.getLast(), Limit.of(PRICE_UPDATE_CHUNK_SIZE));
+                }
+            }
+        } else {
+            // requested ids go out in bounded slices so no statement outgrows the bind parameter limits
+            for (int from = 0; from < ids.size(); from += PRICE_UPDATE_CHUNK_SIZE) {
+                List<Long> touched = repository.findIdsForPriceUpdate(
+                        ids.subList(from, Math.min(ids.size(), from + PRICE_UPDATE_CHUNK_SIZE)), factor, delta);
+                if (!touched.isEmpty()) {
+                    affected += repository.updatePrices(touched, factor, delta);
+                    eventPublisher.publishEvent(new ProductChangedEvent(touched));
+                }
+            }
+        }
+        return new PriceUpdateResultDTO(affected);
+    }
+
+    // a full replacement without the version it was based on would silently overwrite concurrent edits
     @Transactional
     public ProductDTO update(Long id, ProductDTO dto) {
+        if (dto.getVersion() == null) {
+            throw new InvalidRequestException("Version is required to update a product");
+        }
         try{
             Product entity = repository.getReferenceById(id);
+            if (!dto.getVersion().equals(entity.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
+            Set<Long> before = categoryIds(entity);
             copyDtoToEntity(dto, entity);
             entity = repository.save(entity);
+            repository.flush();
+            CategoryCountDeltas deltas = new CategoryCountDeltas();
+            deltas.add(before, categoryIds(entity));
+            categoryService.applyProductCountDeltas(deltas);
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
             return new ProductDTO(entity);
         } catch (EntityNotFoundException e){
             throw new ResourceNotFoundException("Id not found: " + id);
         }
     }
 
+    // the merged DTO goes through the regular update; @DynamicUpdate keeps the UPDATE to the changed columns
+    @Transactional
+    public ProductDTO patch(Long id, JsonNode patch) {
+        Product entity = repository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Id not found: " + id));
+        ProductDTO dto = mergePatch.apply(new ProductDTO(entity, entity.getCategories()), patch, ProductDTO.class, PATCHABLE);
+        return update(id, dto);
+    }
+
     @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) {
             throw new ResourceNotFoundException("Id not found: " + id);
         }
         try {
+            CategoryCountDeltas deltas = new CategoryCountDeltas();
+            deltas.add(repository.findCategoryIds(id), List.of());
             repository.deleteById(id);
+            categoryService.applyProductCountDeltas(deltas);
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
         }
         catch (DataIntegrityViolationException e) {
-            throw new DatabaseException("Integrity violation");
+            throw new DatabaseException("Integrity violation", e);
         }
     }
 
+    private Set<Long> categoryIds(Product entity) {
+        Set<Long> ids = new HashSet<>();
+        entity.getCategories().forEach(x -> ids.add(x.getId()));
+        return ids;
+    }
+
+    private boolean validateBatchItem(int index, ProductDTO dto, BatchInsertResultDTO result) {
+        if (dto == null) {
+            result.addError(index, null, "Required item");
+            return false;
+        }
+        int errors = result.getErrors().size();
+        for (ConstraintViolation<ProductDTO> violation : validator.validate(dto)) {
+            result.addError(index, violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (dto.getCategories() == null) {
+            result.addError(index, "categories", "Required field");
+        } else {
+            for (CategoryDTO categoryDTO : dto.getCategories()) {
+                if (categoryDTO == null || categoryDTO.getId() == null || !categoryService.existsById(categoryDTO.getId())) {
+                    result.addError(index, "categories", "Category not found: " + (categoryDTO != null ? categoryDTO.getId() : null));
+                }
+            }
+        }
+        return result.getErrors().size() == errors;
+    }
+
+    private void writeLine(ObjectWriter writer, ProductExportDTO dto, OutputStream out) throws IOException {
+        out.write(writer.writeValueAsBytes(dto));
+        out.write('\n');
+    }
+
+    private String versionTag(Long id, Integer version) {
+        return id + "." + version + "." + catalogVersion.getCategoriesVersion();
+    }
+
+    // name sorts run on the indexed normalized column so they ignore case and accents
+    private Pageable normalizedNameSort(Pageable pageable) {
+        Sort sort = pageable.getSort();
+        if (sort.getOrderFor("name") == null) {
+            return pageable;
+        }
+        sort = Sort.by(sort.stream().map(x -> x.getProperty().equals("name") ? x.withProperty("nameNormalized") : x).toList());
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort) : Pageable.unpaged(sort);
+    }
+
+    private Page<ProductDTO> fetchWithCategories(Page<Long> ids, Pageable pageable) {
+        Map<Long, Product> products = new HashMap<>();
+        if (ids.hasContent()) {
+            repository.findProductsWithCategories(ids.getContent()).forEach(x -> products.put(x.getId(), x));
+        }
+        List<ProductDTO> content = new ArrayList<>(ids.getNumberOfElements());
+        for (Long id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                content.add(new ProductDTO(product, product.getCategories()));
+            }
+        }
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
+    }
+
     private void copyDtoToEntity(ProductDTO dto, Product entity) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
@@ -80,9 +548,19 @@ public class ProductService {
         entity.setImgUrl(dto.getImgUrl());
         entity.setPrice(dto.getPrice());
 
-        entity.getCategories().clear();
+        Set<Long> missing = new LinkedHashSet<>();
         for(CategoryDTO categoryDTO : dto.getCategories()){
-            Category category = categoryRepository.getReferenceById(categoryDTO.getId());
+            if (!categoryService.existsById(categoryDTO.getId())) {
+                throw new InvalidRequestException("Category not found: " + categoryDTO.getId());
+            }
+            missing.add(categoryDTO.getId());
+        }
+        // only the difference touches the collection, so an unchanged set writes no join-table rows
+        Set<Long> requested = Set.copyOf(missing);
+        entity.getCategories().removeIf(x -> !requested.contains(x.getId()));
+        entity.getCategories().forEach(x -> missing.remove(x.getId()));
+        for (Long id : missing) {
+            Category category = categoryRepository.getReferenceById(id);
             entity.getCategories().add(category);
         }
     }
@@ -0,0 +1,32 @@
+package com.ceglauskis.dscatalog.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+// fresh read-only transaction for snapshot and index loads, so they never join a caller's write
+// and always see committed data, also when run from an after-commit listener
+@Component
+public class ReadOnlyTransactions {
+
+    private final TransactionTemplate transaction;
+
+    public ReadOnlyTransactions(PlatformTransactionManager transactionManager) {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setReadOnly(true);
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        return transaction.execute(action);
+    }
+
+    public void executeWithoutResult(Consumer<TransactionStatus> action) {
+        transaction.executeWithoutResult(action);
+    }
+}
@@ -3,34 +3,50 @@ package com.ceglauskis.dscatalog.services;
 import com.ceglauskis.dscatalog.dto.RoleDTO;
 import com.ceglauskis.dscatalog.entities.Role;
 import com.ceglauskis.dscatalog.repositories.RoleRepository;
+import com.ceglauskis.dscatalog.services.cache.LookupSnapshot;
+import com.ceglauskis.dscatalog.services.events.RoleChangedEvent;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.Optional;
+import java.util.Comparator;
+import java.util.Map;
 
 @Service
 public class RoleService {
 
+    private static final Map<String, Comparator<RoleDTO>> SORTABLE_PROPERTIES = Map.of(
+            "id", Comparator.comparing(RoleDTO::getId),
+            "authority", Comparator.comparing(RoleDTO::getAuthority, Comparator.nullsFirst(Comparator.naturalOrder())));
+
     @Autowired
     private RoleRepository repository;
 
-    @Transactional(readOnly = true)
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReadOnlyTransactions readOnlyTransactions;
+
+    private volatile LookupSnapshot<RoleDTO> snapshot;
+
     public Page<RoleDTO> findAllPaged(Pageable pageable) {
-        Page<Role> page = repository.findAll(pageable);
-        return page.map(x -> new RoleDTO(x));
+        return snapshot().findAll(pageable);
     }
 
-    @Transactional(readOnly = true)
     public RoleDTO findById(Long id) {
-        Optional<Role> obj = repository.findById(id);
-        Role entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-        return new RoleDTO(entity);
+        return snapshot().findById(id).orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+    }
+
+    public boolean existsById(Long id) {
+        return id != null && snapshot().containsId(id);
     }
 
     @Transactional
@@ -38,6 +54,7 @@ public class RoleService {
         Role entity = new Role();
         copyDtoToEntity(dto, entity);
         entity = repository.save(entity);
+        eventPublisher.publishEvent(new RoleChangedEvent(entity.getId()));
         return new RoleDTO(entity);
     }
 
@@ -47,6 +64,7 @@ public class RoleService {
             Role entity = repository.getReferenceById(id);
             copyDtoToEntity(dto, entity);
             entity = repository.save(entity);
+            eventPublisher.publishEvent(new RoleChangedEvent(id));
             return new RoleDTO(entity);
         }catch (EntityNotFoundException e){
             throw new ResourceNotFoundException("Id not found: " + id);
@@ -60,9 +78,28 @@ public class RoleService {
         }
         try{
             repository.deleteById(id);
+            eventPublisher.publishEvent(new RoleChangedEvent(id));
         }catch (EntityNotFoundException e){
-            throw new DatabaseException("Integrity violation");
+            throw new DatabaseException("Integrity violation", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoleCommitted(RoleChangedEvent event) {
+        loadSnapshot(true);
+    }
+
+    private LookupSnapshot<RoleDTO> snapshot() {
+        LookupSnapshot<RoleDTO> current = snapshot;
+        return current != null ? current : loadSnapshot(false);
+    }
+
+    private synchronized LookupSnapshot<RoleDTO> loadSnapshot(boolean reload) {
+        if (reload || snapshot == null) {
+            snapshot = readOnlyTransactions.execute(status -> new LookupSnapshot<>(
+                    repository.findAll().stream().map(x -> new RoleDTO(x)).toList(), RoleDTO::getId, SORTABLE_PROPERTIES));
         }
+        return snapshot;
     }
 
     private void copyDtoToEntity(RoleDTO dto, Role entity) {
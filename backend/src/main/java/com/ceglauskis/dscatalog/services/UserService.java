@@ -1,5 +1,6 @@
 package com.ceglauskis.dscatalog.services;
 
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
 import com.ceglauskis.dscatalog.dto.RoleDTO;
 import com.ceglauskis.dscatalog.dto.users.UserDTO;
 import com.ceglauskis.dscatalog.dto.users.UserInsertDTO;
@@ -8,21 +9,51 @@ import com.ceglauskis.dscatalog.entities.Role;
 import com.ceglauskis.dscatalog.entities.User;
 import com.ceglauskis.dscatalog.repositories.RoleRepository;
 import com.ceglauskis.dscatalog.repositories.UserRepository;
+import com.ceglauskis.dscatalog.resources.exceptions.FieldMessage;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
+import com.ceglauskis.dscatalog.services.exceptions.FieldValidationException;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.fields.FieldProjector;
+import com.ceglauskis.dscatalog.services.fields.FieldSelection;
+import com.ceglauskis.dscatalog.services.fields.ProjectionSpec;
+import com.ceglauskis.dscatalog.services.pagination.KeysetCursor;
+import com.ceglauskis.dscatalog.services.patch.JsonMergePatch;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.JsonNode;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class UserService {
 
+    private static final Map<String, Function<String, Object>> CURSOR_KEYS = Map.of(
+            "id", Long::valueOf,
+            "firstName", x -> x,
+            "lastName", x -> x,
+            "email", x -> x);
+
+    private static final ProjectionSpec FIELDS = new ProjectionSpec("User")
+            .column("firstName")
+            .column("lastName")
+            .column("email")
+            .association("roles", "roles", new ProjectionSpec("Role").column("authority"));
+
+    private static final Set<String> PATCHABLE = Set.of("firstName", "lastName", "email", "roles");
+
     @Autowired
     private BCryptPasswordEncoder passwordEncoder;
 
@@ -32,12 +63,34 @@ public class UserService {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private FieldProjector fieldProjector;
+
+    @Autowired
+    private JsonMergePatch mergePatch;
+
     @Transactional(readOnly = true)
     public Page<UserDTO> findAllPaged(Pageable pageable) {
         Page<User> page = repository.findAll(pageable);
         return page.map(UserDTO::new);
     }
 
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllPaged(String fields, Pageable pageable) {
+        return fieldProjector.findPage(FIELDS, FieldSelection.parse(fields), "", Map.of(), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<UserDTO> findAllByCursor(String after, Pageable pageable) {
+        KeysetCursor cursor = KeysetCursor.of(after, pageable.getSort(), CURSOR_KEYS);
+        Window<User> window = repository.findBy(cursor.getPosition(), cursor.getSort(), Limit.of(pageable.getPageSize()));
+        List<UserDTO> content = window.stream().map(UserDTO::new).toList();
+        return new CursorPageDTO<>(content, pageable.getPageSize(), cursor.next(window));
+    }
+
     @Transactional(readOnly = true)
     public UserDTO findById(Long id) {
         Optional<User> obj = repository.findById(id);
@@ -45,6 +98,12 @@ public class UserService {
         return new UserDTO(entity, entity.getRoles());
     }
 
+    @Transactional(readOnly = true)
+    public Map<String, Object> findById(Long id, String fields) {
+        return fieldProjector.findById(FIELDS, FieldSelection.parse(fields), id)
+                .orElseThrow(() -> new ResourceNotFoundException("Entity not found with id " + id));
+    }
+
     @Transactional
     public UserDTO insert(UserInsertDTO dto) {
         User entity = new User();
@@ -66,6 +125,20 @@ public class UserService {
         }
     }
 
+    @Transactional
+    public UserDTO patch(Long id, JsonNode patch) {
+        User entity = repository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Id not found: " + id));
+        UserUpdateDTO dto = mergePatch.apply(new UserDTO(entity, entity.getRoles()), patch, UserUpdateDTO.class, PATCHABLE);
+        // the class-level unique email check only runs on full bodies, so repeat it for a patched email
+        if (patch.has("email")) {
+            User owner = repository.findByEmail(dto.getEmail());
+            if (owner != null && !owner.getId().equals(id)) {
+                throw new FieldValidationException(List.of(new FieldMessage("email", "Email already exists")));
+            }
+        }
+        return update(id, dto);
+    }
+
     @Transactional
     public void delete(Long id) {
         if (!repository.existsById(id)) {
@@ -74,7 +147,7 @@ public class UserService {
         try {
             repository.deleteById(id);
         } catch (DataIntegrityViolationException e) {
-            throw new DatabaseException("Integrity violation");
+            throw new DatabaseException("Integrity violation", e);
         }
     }
 
@@ -83,9 +156,18 @@ public class UserService {
         entity.setLastName(dto.getLastName());
         entity.setEmail(dto.getEmail());
 
-        entity.getRoles().clear();
+        Set<Long> missing = new LinkedHashSet<>();
         for (RoleDTO roleDTO : dto.getRoles()){
-            Role role = roleRepository.getReferenceById(roleDTO.getId());
+            if (!roleService.existsById(roleDTO.getId())) {
+                throw new InvalidRequestException("Role not found: " + roleDTO.getId());
+            }
+            missing.add(roleDTO.getId());
+        }
+        Set<Long> requested = Set.copyOf(missing);
+        entity.getRoles().removeIf(x -> !requested.contains(x.getId()));
+        entity.getRoles().forEach(x -> missing.remove(x.getId()));
+        for (Long id : missing) {
+            Role role = roleRepository.getReferenceById(id);
             entity.getRoles().add(role);
         }
     }
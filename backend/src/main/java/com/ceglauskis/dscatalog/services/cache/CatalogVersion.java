@@ -0,0 +1,50 @@
+package com.ceglauskis.dscatalog.services.cache;
+
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import com.ceglauskis.dscatalog.services.events.CategoryCountsChangedEvent;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong products = new AtomicLong();
+    private final AtomicLong categories = new AtomicLong();
+    private final AtomicLong categoryCounts = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCommitted(ProductChangedEvent event) {
+        products.incrementAndGet();
+    }
+
+    // bumped last so a client revalidating with the new version never reads a stale cached entry
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryCommitted(CategoryChangedEvent event) {
+        categories.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryCountsCommitted(CategoryCountsChangedEvent event) {
+        categoryCounts.incrementAndGet();
+    }
+
+    public String getProductsVersion() {
+        return epoch + "." + products.get() + "." + categories.get();
+    }
+
+    public String getCategoriesVersion() {
+        return epoch + "." + categories.get();
+    }
+
+    // counts are not embedded in product responses, so they only version the category listing
+    public String getCategoryListVersion() {
+        return getCategoriesVersion() + "." + categoryCounts.get();
+    }
+}
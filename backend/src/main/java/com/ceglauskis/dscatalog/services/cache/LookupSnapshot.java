@@ -0,0 +1,70 @@
+package com.ceglauskis.dscatalog.services.cache;
+
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+public class LookupSnapshot<T> {
+
+    private final List<T> items;
+    private final Map<Long, T> itemsById;
+    private final Map<String, Comparator<T>> sortableProperties;
+
+    public LookupSnapshot(List<T> items, Function<T, Long> idExtractor, Map<String, Comparator<T>> sortableProperties) {
+        Map<Long, T> itemsById = new HashMap<>();
+        items.forEach(x -> itemsById.put(idExtractor.apply(x), x));
+        this.items = items.stream().sorted(Comparator.comparing(idExtractor)).toList();
+        this.itemsById = Map.copyOf(itemsById);
+        this.sortableProperties = sortableProperties;
+    }
+
+    public Optional<T> findById(Long id) {
+        return Optional.ofNullable(itemsById.get(id));
+    }
+
+    public boolean containsId(Long id) {
+        return itemsById.containsKey(id);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Page<T> findAll(Pageable pageable) {
+        List<T> sorted = items;
+        Comparator<T> comparator = comparator(pageable.getSort());
+        if (comparator != null) {
+            sorted = items.stream().sorted(comparator).toList();
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(sorted, pageable, sorted.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(sorted.subList(from, to), pageable, sorted.size());
+    }
+
+    private Comparator<T> comparator(Sort sort) {
+        Comparator<T> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<T> comparator = sortableProperties.get(order.getProperty());
+            if (comparator == null) {
+                throw new InvalidRequestException("Cannot sort by " + order.getProperty());
+            }
+            if (order.isDescending()) {
+                comparator = comparator.reversed();
+            }
+            result = result == null ? comparator : result.thenComparing(comparator);
+        }
+        return result;
+    }
+}
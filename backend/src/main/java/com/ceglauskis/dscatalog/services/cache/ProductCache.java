@@ -0,0 +1,220 @@
+package com.ceglauskis.dscatalog.services.cache;
+
+import com.ceglauskis.dscatalog.dto.CacheStatsDTO;
+import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.exceptions.ServiceUnavailableException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class ProductCache {
+
+    private static final long NEGATIVE_MAXIMUM_SIZE = 100_000;
+
+    private final AsyncCache<Long, ProductDTO> cache;
+    private final Cache<Long, ResourceNotFoundException> notFound;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final long maximumWeight;
+    private final Duration loadWaitTimeout;
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder coalesceTimeouts = new LongAdder();
+
+    public ProductCache(@Value("${dscatalog.cache.products.maximum-weight:33554432}") long maximumWeight,
+                        @Value("${dscatalog.cache.products.load-wait-timeout:2s}") Duration loadWaitTimeout,
+                        @Value("${dscatalog.cache.products.negative-ttl:30s}") Duration negativeTtl) {
+        this.maximumWeight = maximumWeight;
+        this.loadWaitTimeout = loadWaitTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Long id, ProductDTO dto) -> weigh(dto))
+                .recordStats()
+                .buildAsync();
+        this.notFound = Caffeine.newBuilder()
+                .expireAfterWrite(negativeTtl)
+                .maximumSize(NEGATIVE_MAXIMUM_SIZE)
+                .recordStats()
+                .build();
+    }
+
+    // The first caller for a missing id runs the load on its own thread and publishes it as an
+    // in-flight future; concurrent callers wait on that future and share its result or exception.
+    // A not-found completes the future with null, which the cache drops without logging, and
+    // reaches the waiters through the future's own field instead.
+    public ProductDTO get(Long id, Function<Long, ProductDTO> loader) {
+        if (writtenInCurrentTransaction().contains(id)) {
+            return loader.apply(id);
+        }
+        ResourceNotFoundException known = notFound.getIfPresent(id);
+        if (known != null) {
+            throw known;
+        }
+        long generation = invalidations.get();
+        LoadFuture load = new LoadFuture();
+        CompletableFuture<ProductDTO> future = cache.get(id, (key, executor) -> load);
+        if (future != load) {
+            if (!future.isDone()) {
+                coalesced.increment();
+            }
+            ProductDTO dto = await(future);
+            if (dto == null && future instanceof LoadFuture shared && shared.notFound != null) {
+                throw shared.notFound;
+            }
+            return dto;
+        }
+        try {
+            ProductDTO dto = loader.apply(id);
+            load.complete(dto);
+            return dto;
+        } catch (ResourceNotFoundException e) {
+            rememberNotFound(id, e, generation);
+            load.notFound = e;
+            load.complete(null);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // misses are handed to the loader together so a multi-get costs at most one query
+    public Map<Long, ProductDTO> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, ProductDTO>> loader) {
+        Set<Long> written = writtenInCurrentTransaction();
+        List<Long> cacheable = ids.stream().filter(x -> !written.contains(x)).toList();
+        Map<Long, ProductDTO> result = new HashMap<>(await(cache.getAll(cacheable, (keys, executor) -> {
+            try {
+                return CompletableFuture.completedFuture(loader.apply(Set.copyOf(keys)));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        })));
+        if (cacheable.size() < ids.size()) {
+            result.putAll(loader.apply(ids.stream().filter(written::contains).collect(Collectors.toSet())));
+        }
+        return result;
+    }
+
+    public ProductDTO getIfPresent(Long id) {
+        return cache.synchronous().policy().getIfPresentQuietly(id);
+    }
+
+    public CacheStatsDTO getStats() {
+        Cache<Long, ProductDTO> view = cache.synchronous();
+        return new CacheStatsDTO(view.stats(), view.estimatedSize(),
+                view.policy().eviction().map(x -> x.weightedSize().orElse(0L)).orElse(0L), maximumWeight,
+                coalesced.sum(), coalesceTimeouts.sum(), notFound.stats().hitCount());
+    }
+
+    // Uncommitted writes must not be served from or loaded into the shared cache,
+    // so ids written by the current transaction bypass it until the commit invalidates them.
+    @EventListener
+    public void onProductWritten(ProductChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Set<Long> written = writtenInCurrentTransaction();
+        if (written.isEmpty()) {
+            TransactionSynchronizationManager.bindResource(this, written = new HashSet<>());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductCache.this);
+                }
+            });
+        }
+        written.addAll(event.getIds());
+    }
+
+    @TransactionalEventListener
+    public void onProductCommitted(ProductChangedEvent event) {
+        invalidations.incrementAndGet();
+        notFound.invalidateAll(event.getIds());
+        cache.synchronous().invalidateAll(event.getIds());
+    }
+
+    // drop the stale entries before CatalogVersion hands out the new categories version
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryCommitted(CategoryChangedEvent event) {
+        cache.synchronous().invalidateAll();
+    }
+
+    // a load that raced with a commit may have missed the new row, so its entry is dropped again
+    private void rememberNotFound(Long id, ResourceNotFoundException e, long generation) {
+        notFound.put(id, e);
+        if (invalidations.get() != generation) {
+            notFound.invalidate(id);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(loadWaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            coalesceTimeouts.increment();
+            throw new ServiceUnavailableException("Timed out waiting for a concurrent product load");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a concurrent product load");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> writtenInCurrentTransaction() {
+        Set<Long> written = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        return written != null ? written : Set.of();
+    }
+
+    private static int weigh(ProductDTO dto) {
+        int chars = length(dto.getName()) + length(dto.getDescription()) + length(dto.getImgUrl());
+        for (CategoryDTO category : dto.getCategories()) {
+            chars += length(category.getName());
+        }
+        return 128 + 2 * chars + 48 * dto.getCategories().size();
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static class LoadFuture extends CompletableFuture<ProductDTO> {
+
+        private volatile ResourceNotFoundException notFound;
+    }
+}
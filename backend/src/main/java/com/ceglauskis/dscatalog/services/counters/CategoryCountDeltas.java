@@ -0,0 +1,46 @@
+package com.ceglauskis.dscatalog.services.counters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// per-category product count changes collected during one product write
+public class CategoryCountDeltas {
+
+    private final Map<Long, Long> deltas = new HashMap<>();
+
+    public void add(Collection<Long> before, Collection<Long> after) {
+        Set<Long> previous = new HashSet<>(before);
+        Set<Long> current = new HashSet<>(after);
+        for (Long id : current) {
+            if (!previous.contains(id)) {
+                deltas.merge(id, 1L, Long::sum);
+            }
+        }
+        for (Long id : previous) {
+            if (!current.contains(id)) {
+                deltas.merge(id, -1L, Long::sum);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return deltas.values().stream().allMatch(x -> x == 0L);
+    }
+
+    // one UPDATE per distinct delta instead of one per category
+    public Map<Long, List<Long>> idsByDelta() {
+        Map<Long, List<Long>> result = new TreeMap<>();
+        deltas.forEach((id, delta) -> {
+            if (delta != 0L) {
+                result.computeIfAbsent(delta, x -> new ArrayList<>()).add(id);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,14 @@
+package com.ceglauskis.dscatalog.services.events;
+
+public class CategoryChangedEvent {
+
+    private final Long id;
+
+    public CategoryChangedEvent(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
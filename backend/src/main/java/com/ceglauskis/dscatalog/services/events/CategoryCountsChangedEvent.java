@@ -0,0 +1,17 @@
+package com.ceglauskis.dscatalog.services.events;
+
+import java.util.Collection;
+import java.util.List;
+
+public class CategoryCountsChangedEvent {
+
+    private final Collection<Long> ids;
+
+    public CategoryCountsChangedEvent(Collection<Long> ids) {
+        this.ids = List.copyOf(ids);
+    }
+
+    public Collection<Long> getIds() {
+        return ids;
+    }
+}
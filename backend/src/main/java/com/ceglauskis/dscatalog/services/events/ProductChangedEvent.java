@@ -0,0 +1,21 @@
+package com.ceglauskis.dscatalog.services.events;
+
+import java.util.Collection;
+import java.util.List;
+
+public class ProductChangedEvent {
+
+    private final Collection<Long> ids;
+
+    public ProductChangedEvent(Long id) {
+        this.ids = List.of(id);
+    }
+
+    public ProductChangedEvent(Collection<Long> ids) {
+        this.ids = List.copyOf(ids);
+    }
+
+    public Collection<Long> getIds() {
+        return ids;
+    }
+}
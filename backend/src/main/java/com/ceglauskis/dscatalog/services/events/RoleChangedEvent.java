@@ -0,0 +1,14 @@
+package com.ceglauskis.dscatalog.services.events;
+
+public class RoleChangedEvent {
+
+    private final Long id;
+
+    public RoleChangedEvent(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
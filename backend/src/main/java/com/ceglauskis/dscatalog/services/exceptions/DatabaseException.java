@@ -2,7 +2,7 @@ package com.ceglauskis.dscatalog.services.exceptions;
 
 public class DatabaseException extends RuntimeException{
 
-    public DatabaseException(String message) {
-        super(message);
+    public DatabaseException(String message, Throwable cause) {
+        super(message, cause);
     }
 }
@@ -0,0 +1,19 @@
+package com.ceglauskis.dscatalog.services.exceptions;
+
+import com.ceglauskis.dscatalog.resources.exceptions.FieldMessage;
+
+import java.util.List;
+
+public class FieldValidationException extends RuntimeException{
+
+    private final List<FieldMessage> errors;
+
+    public FieldValidationException(List<FieldMessage> errors) {
+        super("Validation failed for " + errors.size() + " field(s)");
+        this.errors = errors;
+    }
+
+    public List<FieldMessage> getErrors() {
+        return errors;
+    }
+}
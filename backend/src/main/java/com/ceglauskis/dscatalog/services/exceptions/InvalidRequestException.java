@@ -0,0 +1,8 @@
+package com.ceglauskis.dscatalog.services.exceptions;
+
+public class InvalidRequestException extends RuntimeException{
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
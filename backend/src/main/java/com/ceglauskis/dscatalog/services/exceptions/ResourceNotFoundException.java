@@ -2,7 +2,9 @@ package com.ceglauskis.dscatalog.services.exceptions;
 
 public class ResourceNotFoundException extends RuntimeException{
 
+    // thrown on every miss and rethrown as a shared instance by the product negative cache, so the
+    // stack trace would be both costly and misleading
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,8 @@
+package com.ceglauskis.dscatalog.services.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException{
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ceglauskis.dscatalog.services.fields;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// runs scalar JPQL selects for the requested fields only; associations are loaded
+// with one extra query each and only when asked for
+@Component
+public class FieldProjector {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Page<Map<String, Object>> findPage(ProjectionSpec spec, FieldSelection selection, String where,
+                                              Map<String, Object> parameters, Pageable pageable) {
+        List<String> fields = spec.resolve(selection, true);
+        String from = " FROM " + spec.getEntityName() + " obj" + (where.isEmpty() ? "" : " WHERE " + where);
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                select(spec, fields) + from + spec.orderBy(pageable.getSort()), Object[].class);
+        parameters.forEach(query::setParameter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> content = toRows(spec, fields, selection, query.getResultList());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(content, pageable, content.size());
+        }
+        TypedQuery<Long> count = entityManager.createQuery("SELECT COUNT(obj)" + from, Long.class);
+        parameters.forEach(count::setParameter);
+        return new PageImpl<>(content, pageable, count.getSingleResult());
+    }
+
+    public Optional<Map<String, Object>> findById(ProjectionSpec spec, FieldSelection selection, Long id) {
+        List<String> fields = spec.resolve(selection, true);
+        List<Object[]> rows = entityManager.createQuery(
+                        select(spec, fields) + " FROM " + spec.getEntityName() + " obj WHERE obj.id = :id", Object[].class)
+                .setParameter("id", id)
+                .getResultList();
+        return toRows(spec, fields, selection, rows).stream().findFirst();
+    }
+
+    // obj.id always comes first so association rows can be attached to their parent
+    private String select(ProjectionSpec spec, List<String> fields) {
+        StringBuilder select = new StringBuilder("SELECT obj.id");
+        for (String field : fields) {
+            if (spec.isColumn(field)) {
+                select.append(", obj.").append(spec.attributeOf(field));
+            }
+        }
+        return select.toString();
+    }
+
+    private List<Map<String, Object>> toRows(ProjectionSpec spec, List<String> fields, FieldSelection selection,
+                                             List<Object[]> values) {
+        List<Map<String, Object>> rows = new ArrayList<>(values.size());
+        Map<Long, Map<String, Object>> rowsById = new HashMap<>();
+        for (Object[] value : values) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int column = 1;
+            for (String field : fields) {
+                row.put(field, spec.isColumn(field) ? value[column++] : new ArrayList<>());
+            }
+            rows.add(row);
+            rowsById.put((Long) value[0], row);
+        }
+        if (rowsById.isEmpty()) {
+            return rows;
+        }
+        for (String field : fields) {
+            if (!spec.isColumn(field)) {
+                loadAssociation(spec, field, selection.nested(field), rowsById);
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadAssociation(ProjectionSpec spec, String field, FieldSelection selection,
+                                 Map<Long, Map<String, Object>> rowsById) {
+        ProjectionSpec.Association association = spec.associationOf(field);
+        ProjectionSpec target = association.getTarget();
+        List<String> nestedFields = target.resolve(selection, false);
+        StringBuilder jpql = new StringBuilder("SELECT obj.id");
+        for (String nestedField : nestedFields) {
+            jpql.append(", a.").append(target.attributeOf(nestedField));
+        }
+        jpql.append(" FROM ").append(spec.getEntityName()).append(" obj JOIN obj.").append(association.getAttribute())
+                .append(" a WHERE obj.id IN :ids ORDER BY a.id");
+        List<Object[]> values = entityManager.createQuery(jpql.toString(), Object[].class)
+                .setParameter("ids", rowsById.keySet())
+                .getResultList();
+        for (Object[] value : values) {
+            Map<String, Object> nested = new LinkedHashMap<>();
+            for (int i = 0; i < nestedFields.size(); i++) {
+                nested.put(nestedFields.get(i), value[i + 1]);
+            }
+            ((List<Map<String, Object>>) rowsById.get((Long) value[0]).get(field)).add(nested);
+        }
+    }
+}
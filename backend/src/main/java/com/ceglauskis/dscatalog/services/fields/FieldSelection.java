@@ -0,0 +1,117 @@
+package com.ceglauskis.dscatalog.services.fields;
+
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// parsed ?fields= expression, e.g. "id,name,categories(id,name)"
+public final class FieldSelection {
+
+    private static final FieldSelection ALL = new FieldSelection(Map.of());
+
+    private final Map<String, FieldSelection> fields;
+
+    private FieldSelection(Map<String, FieldSelection> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new InvalidRequestException("fields should not be empty");
+        }
+        int[] position = {0};
+        FieldSelection selection = parseList(expression, position, false);
+        if (position[0] != expression.length()) {
+            throw invalid(expression);
+        }
+        return selection;
+    }
+
+    // an empty selection means every field the target allows
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    public Set<String> names() {
+        return fields.keySet();
+    }
+
+    public boolean contains(String name) {
+        return fields.containsKey(name);
+    }
+
+    public FieldSelection nested(String name) {
+        return fields.getOrDefault(name, ALL);
+    }
+
+    // in-memory counterpart of FieldProjector for data that is already cached as DTOs
+    public <T> Function<T, Map<String, Object>> writer(Map<String, Function<T, Object>> accessors) {
+        List<String> selected = new ArrayList<>(isAll() ? accessors.keySet() : fields.keySet());
+        List<Function<T, Object>> getters = new ArrayList<>(selected.size());
+        for (String field : selected) {
+            Function<T, Object> getter = accessors.get(field);
+            if (getter == null) {
+                throw new InvalidRequestException("Unknown field: " + field);
+            }
+            if (!nested(field).isAll()) {
+                throw new InvalidRequestException("Field does not support nested selection: " + field);
+            }
+            getters.add(getter);
+        }
+        return item -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < selected.size(); i++) {
+                row.put(selected.get(i), getters.get(i).apply(item));
+            }
+            return row;
+        };
+    }
+
+    private static FieldSelection parseList(String expression, int[] position, boolean nested) {
+        Map<String, FieldSelection> fields = new LinkedHashMap<>();
+        while (true) {
+            int start = position[0];
+            while (position[0] < expression.length() && isNameChar(expression.charAt(position[0]))) {
+                position[0]++;
+            }
+            String name = expression.substring(start, position[0]).trim();
+            if (name.isEmpty()) {
+                throw invalid(expression);
+            }
+            FieldSelection child = ALL;
+            if (position[0] < expression.length() && expression.charAt(position[0]) == '(') {
+                if (nested) {
+                    throw new InvalidRequestException("fields supports a single level of nesting: " + expression);
+                }
+                position[0]++;
+                child = parseList(expression, position, true);
+                if (position[0] >= expression.length() || expression.charAt(position[0]) != ')') {
+                    throw invalid(expression);
+                }
+                position[0]++;
+            }
+            if (fields.put(name, child) != null) {
+                throw new InvalidRequestException("Duplicated field: " + name);
+            }
+            if (position[0] < expression.length() && expression.charAt(position[0]) == ',') {
+                position[0]++;
+                continue;
+            }
+            return new FieldSelection(Collections.unmodifiableMap(fields));
+        }
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == ' ';
+    }
+
+    private static InvalidRequestException invalid(String expression) {
+        return new InvalidRequestException("Invalid fields expression: " + expression);
+    }
+}
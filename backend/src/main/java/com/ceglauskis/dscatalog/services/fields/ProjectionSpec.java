@@ -0,0 +1,115 @@
+package com.ceglauskis.dscatalog.services.fields;
+
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+// fields a client may ask for on one entity, mapped to the JPQL paths that load them
+public class ProjectionSpec {
+
+    private final String entityName;
+    private final Map<String, String> columns = new LinkedHashMap<>();
+    private final Map<String, String> sortable = new LinkedHashMap<>();
+    private final Map<String, Association> associations = new LinkedHashMap<>();
+
+    public ProjectionSpec(String entityName) {
+        this.entityName = entityName;
+        column("id");
+    }
+
+    public ProjectionSpec column(String field) {
+        return column(field, field);
+    }
+
+    public ProjectionSpec column(String field, String attribute) {
+        columns.put(field, attribute);
+        sortable.put(field, attribute);
+        return this;
+    }
+
+    public ProjectionSpec sortBy(String field, String attribute) {
+        sortable.put(field, attribute);
+        return this;
+    }
+
+    public ProjectionSpec association(String field, String attribute, ProjectionSpec target) {
+        associations.put(field, new Association(attribute, target));
+        return this;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public boolean isColumn(String field) {
+        return columns.containsKey(field);
+    }
+
+    public String attributeOf(String field) {
+        return columns.get(field);
+    }
+
+    public Association associationOf(String field) {
+        return associations.get(field);
+    }
+
+    // requested fields in output order; every field is checked before any SQL is built
+    public List<String> resolve(FieldSelection selection, boolean allowAssociations) {
+        if (selection.isAll()) {
+            List<String> all = new ArrayList<>(columns.keySet());
+            if (allowAssociations) {
+                all.addAll(associations.keySet());
+            }
+            return all;
+        }
+        for (String field : selection.names()) {
+            boolean association = allowAssociations && associations.containsKey(field);
+            if (!columns.containsKey(field) && !association) {
+                throw new InvalidRequestException("Unknown field: " + field);
+            }
+            if (!association && !selection.nested(field).isAll()) {
+                throw new InvalidRequestException("Field does not support nested selection: " + field);
+            }
+        }
+        return new ArrayList<>(selection.names());
+    }
+
+    public String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        StringJoiner orderBy = new StringJoiner(", ", " ORDER BY ", "");
+        for (Sort.Order order : sort) {
+            String attribute = sortable.get(order.getProperty());
+            if (attribute == null) {
+                throw new InvalidRequestException("Invalid sort property: " + order.getProperty());
+            }
+            orderBy.add("obj." + attribute + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        return orderBy.toString();
+    }
+
+    public static class Association {
+
+        private final String attribute;
+        private final ProjectionSpec target;
+
+        private Association(String attribute, ProjectionSpec target) {
+            this.attribute = attribute;
+            this.target = target;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        public ProjectionSpec getTarget() {
+            return target;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ceglauskis.dscatalog.services.pagination;
+
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+public class KeysetCursor {
+
+    private static final String ID = "id";
+    private static final String SEPARATOR = ":";
+
+    private final Sort.Order order;
+    private final ScrollPosition position;
+
+    private KeysetCursor(Sort.Order order, ScrollPosition position) {
+        this.order = order;
+        this.position = position;
+    }
+
+    public static KeysetCursor of(String after, Sort sort, Map<String, Function<String, Object>> keyTypes) {
+        if (after == null || after.isBlank()) {
+            return new KeysetCursor(firstOrder(sort, keyTypes), ScrollPosition.keyset());
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+            Sort.Order order = new Sort.Order(Sort.Direction.valueOf(parts[1]), parts[0]);
+            Function<String, Object> keyType = keyTypes.get(order.getProperty());
+            if (keyType == null || parts.length != (ID.equals(order.getProperty()) ? 3 : 4)) {
+                throw new IllegalArgumentException();
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(order.getProperty(), keyType.apply(decodeValue(parts[2])));
+            if (!ID.equals(order.getProperty())) {
+                keys.put(ID, keyTypes.get(ID).apply(decodeValue(parts[3])));
+            }
+            return new KeysetCursor(order, ScrollPosition.forward(keys));
+        } catch (RuntimeException e) {
+            throw new InvalidRequestException("Invalid cursor: " + after);
+        }
+    }
+
+    public Sort getSort() {
+        if (ID.equals(order.getProperty())) {
+            return Sort.by(order);
+        }
+        return Sort.by(order, new Sort.Order(order.getDirection(), ID));
+    }
+
+    public ScrollPosition getPosition() {
+        return position;
+    }
+
+    public String next(Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        StringJoiner joiner = new StringJoiner(SEPARATOR);
+        joiner.add(order.getProperty()).add(order.getDirection().name());
+        joiner.add(encodeValue(last.getKeys().get(order.getProperty())));
+        if (!ID.equals(order.getProperty())) {
+            joiner.add(encodeValue(last.getKeys().get(ID)));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Sort.Order firstOrder(Sort sort, Map<String, Function<String, Object>> keyTypes) {
+        if (sort.isUnsorted()) {
+            return Sort.Order.asc(ID);
+        }
+        Sort.Order order = sort.iterator().next();
+        if (sort.stream().count() > 1 || !keyTypes.containsKey(order.getProperty())) {
+            throw new InvalidRequestException("Cursor pagination supports a single sort by " + keyTypes.keySet());
+        }
+        return order;
+    }
+
+    private static String encodeValue(Object value) {
+        return URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8);
+    }
+
+    private static String decodeValue(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ceglauskis.dscatalog.services.patch;
+
+import com.ceglauskis.dscatalog.resources.exceptions.FieldMessage;
+import com.ceglauskis.dscatalog.services.exceptions.FieldValidationException;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// RFC 7396 merge patch applied over the current DTO; only the members present in the
+// patch are bean-validated so untouched fields never fail a partial update
+@Component
+public class JsonMergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    public <T> T apply(Object current, JsonNode patch, Class<T> type, Set<String> patchable) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidRequestException("Merge patch should be a JSON object");
+        }
+        for (String name : patch.propertyNames()) {
+            if (!patchable.contains(name)) {
+                throw new InvalidRequestException("Field cannot be patched: " + name);
+            }
+        }
+        T result;
+        try {
+            result = objectMapper.treeToValue(merge(objectMapper.valueToTree(current), patch), type);
+        } catch (JacksonException e) {
+            throw new InvalidRequestException("Invalid merge patch: " + e.getOriginalMessage());
+        }
+        List<FieldMessage> errors = new ArrayList<>();
+        for (String name : patch.propertyNames()) {
+            for (ConstraintViolation<T> violation : validator.validateProperty(result, name)) {
+                errors.add(new FieldMessage(name, violation.getMessage()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new FieldValidationException(errors);
+        }
+        return result;
+    }
+
+    static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        ObjectNode result = target != null && target.isObject() ? (ObjectNode) target : JsonNodeFactory.instance.objectNode();
+        for (Map.Entry<String, JsonNode> member : patch.properties()) {
+            if (member.getValue().isNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.set(member.getKey(), merge(result.get(member.getKey()), member.getValue()));
+            }
+        }
+        return result;
+    }
+}
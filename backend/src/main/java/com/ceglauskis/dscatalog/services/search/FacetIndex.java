@@ -0,0 +1,224 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Not thread-safe, ProductFacetIndex guards it with a read/write lock
+public class FacetIndex {
+
+    private final double[] boundaries;
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byCategory = new TreeMap<>();
+    private final RoaringBitmap[] byPriceBucket;
+    private final PriceTable prices = new PriceTable();
+
+    // boundaries 100, 500 make the buckets [0, 100), [100, 500) and [500, infinity)
+    public FacetIndex(double[] boundaries) {
+        this.boundaries = boundaries.clone();
+        Arrays.sort(this.boundaries);
+        byPriceBucket = new RoaringBitmap[this.boundaries.length + 1];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new RoaringBitmap();
+        }
+    }
+
+    public int size() {
+        return all.getCardinality();
+    }
+
+    public int countByCategory(long categoryId) {
+        RoaringBitmap category = byCategory.get(categoryId);
+        return category != null ? category.getCardinality() : 0;
+    }
+
+    // bitmaps hold 32-bit values, so ids past Integer.MAX_VALUE cannot be indexed
+    public static boolean supports(long productId) {
+        return productId >= 0 && productId <= Integer.MAX_VALUE;
+    }
+
+    public void put(long productId, Double price, Collection<Long> categoryIds) {
+        if (!supports(productId)) {
+            throw new IllegalArgumentException("Product id out of facet index range: " + productId);
+        }
+        int id = (int) productId;
+        remove(productId);
+        all.add(id);
+        double value = price != null ? price : 0.0;
+        prices.put(id, value);
+        byPriceBucket[bucketOf(value)].add(id);
+        for (Long categoryId : categoryIds) {
+            byCategory.computeIfAbsent(categoryId, x -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    public void remove(long productId) {
+        if (!supports(productId) || !all.contains((int) productId)) {
+            return;
+        }
+        int id = (int) productId;
+        all.remove(id);
+        byPriceBucket[bucketOf(prices.get(id))].remove(id);
+        prices.remove(id);
+        for (RoaringBitmap bitmap : byCategory.values()) {
+            bitmap.remove(id);
+        }
+    }
+
+    // categories are ANDed; the price range is [minPrice, maxPrice], either end optional
+    public FacetResult query(List<Long> categoryIds, Double minPrice, Double maxPrice, long offset, int limit) {
+        RoaringBitmap matches = all;
+        for (Long categoryId : categoryIds) {
+            RoaringBitmap category = byCategory.get(categoryId);
+            if (category == null) {
+                matches = new RoaringBitmap();
+                break;
+            }
+            matches = RoaringBitmap.and(matches, category);
+        }
+        if (minPrice != null || maxPrice != null) {
+            matches = RoaringBitmap.and(matches, priceRange(minPrice, maxPrice));
+        }
+
+        Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+        for (Map.Entry<Long, RoaringBitmap> entry : byCategory.entrySet()) {
+            long count = RoaringBitmap.andCardinality(matches, entry.getValue());
+            if (count > 0) {
+                categoryCounts.put(entry.getKey(), count);
+            }
+        }
+        long[] priceCounts = new long[byPriceBucket.length];
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            priceCounts[i] = RoaringBitmap.andCardinality(matches, byPriceBucket[i]);
+        }
+
+        long total = matches.getLongCardinality();
+        List<Long> ids = new ArrayList<>();
+        for (long i = offset; i < total && i < offset + limit; i++) {
+            ids.add((long) matches.select((int) i));
+        }
+        return new FacetResult(total, ids, categoryCounts, boundaries, priceCounts);
+    }
+
+    // whole buckets inside the range are ORed; only the two edge buckets are checked price by price
+    private RoaringBitmap priceRange(Double minPrice, Double maxPrice) {
+        double min = minPrice != null ? minPrice : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY;
+        RoaringBitmap result = new RoaringBitmap();
+        if (min > max) {
+            return result;
+        }
+        int first = bucketOf(min);
+        int last = bucketOf(max);
+        for (int bucket = first; bucket <= last; bucket++) {
+            boolean inside = (bucket == 0 ? min == Double.NEGATIVE_INFINITY : min <= boundaries[bucket - 1])
+                    && (bucket == boundaries.length ? max == Double.POSITIVE_INFINITY : max >= boundaries[bucket]);
+            if (inside) {
+                result.or(byPriceBucket[bucket]);
+                continue;
+            }
+            PeekableIntIterator it = byPriceBucket[bucket].getIntIterator();
+            while (it.hasNext()) {
+                int id = it.next();
+                double price = prices.get(id);
+                if (price >= min && price <= max) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int bucketOf(double price) {
+        int index = Arrays.binarySearch(boundaries, price);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // open-addressing id -> price table with linear probing, so memory follows the number of
+    // products rather than the largest id
+    private static class PriceTable {
+
+        private static final int EMPTY = -1;
+
+        private int[] keys = emptyKeys(16);
+        private double[] values = new double[16];
+        private int size;
+
+        private double get(int id) {
+            return values[slot(id)];
+        }
+
+        private void put(int id, double value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int slot = slot(id);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = id;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        // backward-shift deletion: later entries of the probe chain move up, so no tombstones are needed
+        private void remove(int id) {
+            int mask = keys.length - 1;
+            int slot = slot(id);
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            size--;
+            for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    slot = next;
+                }
+            }
+            keys[slot] = EMPTY;
+        }
+
+        private int slot(int id) {
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = emptyKeys(capacity);
+            values = new double[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        // product ids are mostly consecutive, so spread them before masking
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private static int[] emptyKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
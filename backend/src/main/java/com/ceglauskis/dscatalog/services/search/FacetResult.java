@@ -0,0 +1,41 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import java.util.List;
+import java.util.Map;
+
+public class FacetResult {
+
+    private final long total;
+    private final List<Long> ids;
+    private final Map<Long, Long> categoryCounts;
+    private final double[] priceBoundaries;
+    private final long[] priceCounts;
+
+    public FacetResult(long total, List<Long> ids, Map<Long, Long> categoryCounts, double[] priceBoundaries, long[] priceCounts) {
+        this.total = total;
+        this.ids = ids;
+        this.categoryCounts = categoryCounts;
+        this.priceBoundaries = priceBoundaries;
+        this.priceCounts = priceCounts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public Map<Long, Long> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public double[] getPriceBoundaries() {
+        return priceBoundaries;
+    }
+
+    public long[] getPriceCounts() {
+        return priceCounts;
+    }
+}
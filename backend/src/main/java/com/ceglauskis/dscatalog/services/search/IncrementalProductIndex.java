@@ -0,0 +1,121 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.services.ReadOnlyTransactions;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// In-memory product index kept in step with commits: a full rebuild is loaded off-lock and swapped
+// in, committed products are reloaded in chunks, and products committed during a rebuild are replayed
+public abstract class IncrementalProductIndex {
+
+    private static final int REINDEX_CHUNK_SIZE = 1000;
+    private static final int LOOKUP_SLICE_SIZE = 100;
+
+    @Autowired
+    protected ReadOnlyTransactions readOnlyTransactions;
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // held from the read to the apply of a reindex, so a row read before a later commit can never
+    // be applied after the row that commit's reindex read
+    private final Object reindexMonitor = new Object();
+    private boolean rebuilding;
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+
+    // reads every product inside a read-only transaction; the returned action swaps the result in
+    protected abstract Runnable loadAll();
+
+    // reads the given products; the returned action applies them and drops the ids without a row
+    protected abstract Runnable load(List<Long> ids);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCommitted(ProductChangedEvent event) {
+        reindex(event.getIds());
+    }
+
+    public synchronized void rebuild() {
+        setRebuilding(true);
+        Set<Long> changed;
+        try {
+            Runnable swap = readOnlyTransactions.execute(status -> loadAll());
+            lock.writeLock().lock();
+            try {
+                swap.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            changed = setRebuilding(false);
+        }
+        if (!changed.isEmpty()) {
+            reindex(changed);
+        }
+    }
+
+    // rows keyed by product id in the first column. A bulk write mostly produces consecutive ids, which
+    // read as one id range with a cached query plan; sparse ids go out as IN-list slices, since H2
+    // rechecks every fetched row against the whole list and Hibernate replans each list size
+    protected List<Object[]> findRows(List<Long> ids, Function<List<Long>, List<Object[]>> byIds,
+                                      BiFunction<Long, Long, List<Object[]>> byRange) {
+        long min = Collections.min(ids);
+        long max = Collections.max(ids);
+        if (max - min < 2L * ids.size()) {
+            Set<Long> wanted = new HashSet<>(ids);
+            return byRange.apply(min, max).stream().filter(row -> wanted.contains((Long) row[0])).toList();
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_SLICE_SIZE) {
+            rows.addAll(byIds.apply(ids.subList(from, Math.min(ids.size(), from + LOOKUP_SLICE_SIZE))));
+        }
+        return rows;
+    }
+
+    private Set<Long> setRebuilding(boolean value) {
+        lock.writeLock().lock();
+        try {
+            rebuilding = value;
+            Set<Long> changed = new HashSet<>(changedDuringRebuild);
+            changedDuringRebuild.clear();
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reindex(Collection<Long> ids) {
+        List<Long> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += REINDEX_CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(from, Math.min(pending.size(), from + REINDEX_CHUNK_SIZE));
+            synchronized (reindexMonitor) {
+                Runnable apply = readOnlyTransactions.execute(status -> load(chunk));
+                lock.writeLock().lock();
+                try {
+                    apply.run();
+                    if (rebuilding) {
+                        changedDuringRebuild.addAll(chunk);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Not thread-safe, ProductSearchIndex guards it with a read/write lock
+public class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_BOOST = 3;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[][] postingDocs = new int[64][];
+    private int[][] postingFreqs = new int[64][];
+    private int[] postingSizes = new int[64];
+    private int[] docFreqs = new int[64];
+    private int termCount;
+
+    private final Map<Long, Integer> docsByProduct = new HashMap<>();
+    private long[] productIds = new long[64];
+    private int[] docLengths = new int[64];
+    private int[][] docTerms = new int[64][];
+    private final BitSet deleted = new BitSet();
+    private int docCount;
+    private int deletedCount;
+    private long totalLength;
+
+    public int size() {
+        return docsByProduct.size();
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public void put(long productId, String name, String description) {
+        remove(productId);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String token : Tokenizer.tokenize(name)) {
+            frequencies.merge(token, NAME_BOOST, Integer::sum);
+            length += NAME_BOOST;
+        }
+        for (String token : Tokenizer.tokenize(description)) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+
+        int doc = newDoc(productId, length);
+        int[] terms = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            int termId = termId(entry.getKey());
+            appendPosting(termId, doc, entry.getValue());
+            docFreqs[termId]++;
+            terms[i++] = termId;
+        }
+        docTerms[doc] = terms;
+    }
+
+    public boolean remove(long productId) {
+        Integer doc = docsByProduct.remove(productId);
+        if (doc == null) {
+            return false;
+        }
+        deleted.set(doc);
+        deletedCount++;
+        totalLength -= docLengths[doc];
+        for (int termId : docTerms[doc]) {
+            docFreqs[termId]--;
+        }
+        docTerms[doc] = null;
+        if (deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount > docCount / 4) {
+            compact();
+        }
+        return true;
+    }
+
+    public SearchResult search(Collection<String> terms, long offset, int limit) {
+        int liveDocs = size();
+        if (liveDocs == 0) {
+            return new SearchResult(0, List.of());
+        }
+        float averageLength = Math.max(1f, (float) totalLength / liveDocs);
+        float[] scores = new float[docCount];
+        int[] hits = new int[64];
+        int hitCount = 0;
+
+        for (String term : terms) {
+            Integer termId = termIds.get(term);
+            if (termId == null || docFreqs[termId] == 0) {
+                continue;
+            }
+            int docFreq = docFreqs[termId];
+            float idf = (float) Math.log(1 + (liveDocs - docFreq + 0.5) / (docFreq + 0.5));
+            int[] docs = postingDocs[termId];
+            int[] freqs = postingFreqs[termId];
+            for (int i = 0; i < postingSizes[termId]; i++) {
+                int doc = docs[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                if (scores[doc] == 0f) {
+                    if (hitCount == hits.length) {
+                        hits = Arrays.copyOf(hits, hitCount * 2);
+                    }
+                    hits[hitCount++] = doc;
+                }
+                int tf = freqs[i];
+                float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        // score bits in the high half, inverted doc number in the low half: one primitive sort
+        // orders by score and keeps ties in insertion order
+        long[] keys = new long[hitCount];
+        for (int i = 0; i < hitCount; i++) {
+            int doc = hits[i];
+            keys[i] = ((long) Float.floatToIntBits(scores[doc]) << 32) | (~doc & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys);
+
+        List<Long> ids = new ArrayList<>();
+        for (long i = offset; i < hitCount && i < offset + limit; i++) {
+            int doc = ~(int) keys[hitCount - 1 - (int) i];
+            ids.add(productIds[doc]);
+        }
+        return new SearchResult(hitCount, ids);
+    }
+
+    private int newDoc(long productId, int length) {
+        if (docCount == productIds.length) {
+            int capacity = docCount * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        int doc = docCount++;
+        productIds[doc] = productId;
+        docLengths[doc] = length;
+        docsByProduct.put(productId, doc);
+        totalLength += length;
+        return doc;
+    }
+
+    private int termId(String term) {
+        Integer termId = termIds.get(term);
+        if (termId != null) {
+            return termId;
+        }
+        if (termCount == postingDocs.length) {
+            int capacity = termCount * 2;
+            postingDocs = Arrays.copyOf(postingDocs, capacity);
+            postingFreqs = Arrays.copyOf(postingFreqs, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+            docFreqs = Arrays.copyOf(docFreqs, capacity);
+        }
+        postingDocs[termCount] = new int[4];
+        postingFreqs[termCount] = new int[4];
+        termIds.put(term, termCount);
+        return termCount++;
+    }
+
+    private void appendPosting(int termId, int doc, int frequency) {
+        int size = postingSizes[termId];
+        if (size == postingDocs[termId].length) {
+            postingDocs[termId] = Arrays.copyOf(postingDocs[termId], size * 2);
+            postingFreqs[termId] = Arrays.copyOf(postingFreqs[termId], size * 2);
+        }
+        postingDocs[termId][size] = doc;
+        postingFreqs[termId][size] = frequency;
+        postingSizes[termId] = size + 1;
+    }
+
+    // renumbers live documents densely and drops tombstoned postings; doc order is kept,
+    // so every posting list stays sorted
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = live;
+                productIds[live] = productIds[doc];
+                docLengths[live] = docLengths[doc];
+                docTerms[live] = docTerms[doc];
+                docsByProduct.put(productIds[live], live);
+                live++;
+            }
+        }
+        Arrays.fill(docTerms, live, docCount, null);
+
+        for (int termId = 0; termId < termCount; termId++) {
+            int[] docs = postingDocs[termId];
+            int[] freqs = postingFreqs[termId];
+            int size = 0;
+            for (int i = 0; i < postingSizes[termId]; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[size] = doc;
+                    freqs[size] = freqs[i];
+                    size++;
+                }
+            }
+            postingSizes[termId] = size;
+            if (size < docs.length / 4) {
+                postingDocs[termId] = Arrays.copyOf(docs, Math.max(4, size));
+                postingFreqs[termId] = Arrays.copyOf(freqs, Math.max(4, size));
+            }
+        }
+
+        docCount = live;
+        deleted.clear();
+        deletedCount = 0;
+    }
+}
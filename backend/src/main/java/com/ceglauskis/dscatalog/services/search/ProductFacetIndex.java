@@ -0,0 +1,114 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Component
+public class ProductFacetIndex extends IncrementalProductIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Value("${dscatalog.facets.price-buckets:100,500,1000,2000,5000}")
+    private double[] priceBuckets;
+
+    private FacetIndex index = new FacetIndex(new double[0]);
+
+    public FacetResult query(List<Long> categoryIds, Double minPrice, Double maxPrice, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.query(categoryIds, minPrice, maxPrice, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countByCategory(long categoryId) {
+        lock.readLock().lock();
+        try {
+            return index.countByCategory(categoryId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // rows come ordered by product, one per category
+    @Override
+    protected Runnable loadAll() {
+        FacetIndex fresh = new FacetIndex(priceBuckets);
+        try (Stream<Object[]> rows = repository.streamFacetValues()) {
+            Long[] currentId = {null};
+            Double[] currentPrice = {null};
+            List<Long> categoryIds = new ArrayList<>();
+            rows.forEach(row -> {
+                if (!row[0].equals(currentId[0])) {
+                    if (currentId[0] != null) {
+                        put(fresh, currentId[0], currentPrice[0], categoryIds);
+                    }
+                    currentId[0] = (Long) row[0];
+                    currentPrice[0] = (Double) row[1];
+                    categoryIds.clear();
+                }
+                if (row[2] != null) {
+                    categoryIds.add((Long) row[2]);
+                }
+            });
+            if (currentId[0] != null) {
+                put(fresh, currentId[0], currentPrice[0], categoryIds);
+            }
+        }
+        return () -> index = fresh;
+    }
+
+    @Override
+    protected Runnable load(List<Long> ids) {
+        Map<Long, Double> prices = new LinkedHashMap<>();
+        Map<Long, List<Long>> categories = new LinkedHashMap<>();
+        for (Object[] row : findRows(ids, repository::findFacetValues, repository::findFacetValuesBetween)) {
+            prices.put((Long) row[0], (Double) row[1]);
+            List<Long> categoryIds = categories.computeIfAbsent((Long) row[0], x -> new ArrayList<>());
+            if (row[2] != null) {
+                categoryIds.add((Long) row[2]);
+            }
+        }
+        return () -> {
+            for (Long id : ids) {
+                if (prices.containsKey(id)) {
+                    put(index, id, prices.get(id), categories.get(id));
+                } else {
+                    index.remove(id);
+                }
+            }
+        };
+    }
+
+    // a product the bitmaps cannot hold is left out of the facets instead of failing the whole load
+    private void put(FacetIndex target, Long id, Double price, List<Long> categoryIds) {
+        if (!FacetIndex.supports(id)) {
+            log.warn("Product {} is out of the facet index id range and is not faceted", id);
+            return;
+        }
+        target.put(id, price, categoryIds);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Component
+public class ProductSearchIndex extends IncrementalProductIndex {
+
+    private static final float FUZZY_THRESHOLD = 0.3f;
+
+    @Autowired
+    private ProductRepository repository;
+
+    private InvertedIndex index = new InvertedIndex();
+    private TrigramIndex trigrams = new TrigramIndex();
+
+    public SearchResult search(String query, long offset, int limit) {
+        List<String> terms = Tokenizer.tokenize(query).stream().distinct().toList();
+        lock.readLock().lock();
+        try {
+            return index.search(terms, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult fuzzySearch(String query, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return trigrams.search(query, FUZZY_THRESHOLD, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected Runnable loadAll() {
+        InvertedIndex fresh = new InvertedIndex();
+        TrigramIndex freshTrigrams = new TrigramIndex();
+        try (Stream<Object[]> rows = repository.streamSearchableText()) {
+            rows.forEach(row -> {
+                fresh.put((Long) row[0], (String) row[1], (String) row[2]);
+                freshTrigrams.put((Long) row[0], (String) row[1]);
+            });
+        }
+        return () -> {
+            index = fresh;
+            trigrams = freshTrigrams;
+        };
+    }
+
+    @Override
+    protected Runnable load(List<Long> ids) {
+        List<Object[]> rows = findRows(ids, repository::findSearchableText, repository::findSearchableTextBetween);
+        return () -> {
+            Set<Long> found = new HashSet<>();
+            for (Object[] row : rows) {
+                index.put((Long) row[0], (String) row[1], (String) row[2]);
+                trigrams.put((Long) row[0], (String) row[1]);
+                found.add((Long) row[0]);
+            }
+            for (Long id : ids) {
+                if (!found.contains(id)) {
+                    index.remove(id);
+                    trigrams.remove(id);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import java.util.List;
+
+public class SearchResult {
+
+    private final long total;
+    private final List<Long> ids;
+
+    public SearchResult(long total, List<Long> ids) {
+        this.total = total;
+        this.ids = ids;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.entities.Category;
+import com.ceglauskis.dscatalog.repositories.CategoryRepository;
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import com.ceglauskis.dscatalog.util.TextNormalizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@Component
+public class SuggestIndex extends IncrementalProductIndex {
+
+    // categories are few and navigational, so they rank above any product
+    private static final long CATEGORY_SCORE = Long.MAX_VALUE;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private volatile SuggestSnapshot snapshot = SuggestSnapshot.of(List.of());
+
+    // the entries currently in the snapshot by type and id, only touched under the write lock
+    private final Map<String, Map<Long, SuggestSnapshot.Entry>> current = Map.of(
+            SuggestSnapshot.PRODUCT, new HashMap<>(), SuggestSnapshot.CATEGORY, new HashMap<>());
+
+    public List<SuggestSnapshot.Entry> suggest(String prefix, int limit) {
+        String key = TextNormalizer.normalize(prefix);
+        if (key == null || key.isEmpty()) {
+            return List.of();
+        }
+        return snapshot.top(key, limit);
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    protected Runnable loadAll() {
+        List<SuggestSnapshot.Entry> entries = new ArrayList<>();
+        categoryRepository.findAll().forEach(x -> entries.add(categoryEntry(x)));
+        try (Stream<Object[]> rows = repository.streamSuggestText()) {
+            rows.forEach(row -> entries.add(productEntry(row)));
+        }
+        SuggestSnapshot fresh = SuggestSnapshot.of(entries);
+        return () -> {
+            current.values().forEach(Map::clear);
+            entries.forEach(x -> current.get(x.getType()).put(x.getId(), x));
+            snapshot = fresh;
+        };
+    }
+
+    @Override
+    protected Runnable load(List<Long> ids) {
+        List<SuggestSnapshot.Entry> entries = new ArrayList<>();
+        findRows(ids, repository::findSuggestText, repository::findSuggestTextBetween).forEach(row -> entries.add(productEntry(row)));
+        return () -> patch(SuggestSnapshot.PRODUCT, ids, entries);
+    }
+
+    // takes the rebuild monitor: a category committed while a rebuild loads is read after the swap,
+    // and concurrent category commits are read and applied one at a time
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryCommitted(CategoryChangedEvent event) {
+        List<SuggestSnapshot.Entry> entries = new ArrayList<>();
+        readOnlyTransactions.executeWithoutResult(status ->
+                categoryRepository.findById(event.getId()).ifPresent(x -> entries.add(categoryEntry(x))));
+        lock.writeLock().lock();
+        try {
+            patch(SuggestSnapshot.CATEGORY, List.of(event.getId()), entries);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // runs under the write lock; readers keep using the previous snapshot until the swap
+    private void patch(String type, List<Long> ids, List<SuggestSnapshot.Entry> entries) {
+        Map<Long, SuggestSnapshot.Entry> byId = current.get(type);
+        List<SuggestSnapshot.Entry> removed = new ArrayList<>();
+        for (Long id : ids) {
+            SuggestSnapshot.Entry previous = byId.remove(id);
+            if (previous != null) {
+                removed.add(previous);
+            }
+        }
+        entries.forEach(x -> byId.put(x.getId(), x));
+        snapshot = snapshot.patch(removed, entries);
+    }
+
+    private SuggestSnapshot.Entry productEntry(Object[] row) {
+        Instant date = (Instant) row[3];
+        long score = date != null ? date.getEpochSecond() : Long.MIN_VALUE;
+        return new SuggestSnapshot.Entry(SuggestSnapshot.PRODUCT, (Long) row[0], (String) row[1], (String) row[2], score);
+    }
+
+    private SuggestSnapshot.Entry categoryEntry(Category category) {
+        return new SuggestSnapshot.Entry(SuggestSnapshot.CATEGORY, category.getId(), category.getName(),
+                category.getNameNormalized(), CATEGORY_SCORE);
+    }
+}
@@ -0,0 +1,304 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntBinaryOperator;
+
+// Immutable: entries sorted by normalized name and split into bounded segments, each with a
+// max-score segment tree, plus a tree over the segment maxima so the best N entries of any
+// prefix range come out in O(N log n). A patch copies only the segments it touches.
+public class SuggestSnapshot {
+
+    public static final String PRODUCT = "product";
+    public static final String CATEGORY = "category";
+
+    static final int SEGMENT_SIZE = 1024;
+
+    private static final Comparator<Entry> ORDER = Comparator.comparing((Entry x) -> x.key)
+            .thenComparing(Comparator.comparingLong((Entry x) -> x.score).reversed())
+            .thenComparingLong(x -> x.id);
+
+    private final Segment[] segments;
+    private final MaxTree tree;
+    private final int size;
+
+    private SuggestSnapshot(List<Segment> segments) {
+        this.segments = segments.toArray(new Segment[0]);
+        this.tree = new MaxTree(this.segments.length, (a, b) -> compare(a, this.segments[a].best(), b, this.segments[b].best()));
+        this.size = segments.stream().mapToInt(x -> x.entries.length).sum();
+    }
+
+    public static SuggestSnapshot of(Collection<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(ORDER);
+        List<Segment> segments = new ArrayList<>();
+        split(sorted, segments);
+        return new SuggestSnapshot(segments);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // removed entries are the instances previously added to this snapshot; segments without
+    // any removed or added entry are shared with the new snapshot as they are
+    public SuggestSnapshot patch(Collection<Entry> removed, Collection<Entry> added) {
+        if (segments.length == 0) {
+            return of(added);
+        }
+        TreeMap<Integer, List<Entry>> removals = new TreeMap<>();
+        TreeMap<Integer, List<Entry>> additions = new TreeMap<>();
+        removed.forEach(x -> removals.computeIfAbsent(segmentFor(x), k -> new ArrayList<>()).add(x));
+        added.forEach(x -> additions.computeIfAbsent(segmentFor(x), k -> new ArrayList<>()).add(x));
+        if (removals.isEmpty() && additions.isEmpty()) {
+            return this;
+        }
+        List<Segment> result = new ArrayList<>(segments.length + additions.size());
+        for (int s = 0; s < segments.length; s++) {
+            if (!removals.containsKey(s) && !additions.containsKey(s)) {
+                result.add(segments[s]);
+                continue;
+            }
+            split(segments[s].merge(removals.getOrDefault(s, List.of()), additions.getOrDefault(s, List.of())), result);
+        }
+        return new SuggestSnapshot(result);
+    }
+
+    public List<Entry> top(String prefix, int limit) {
+        List<Entry> result = new ArrayList<>(limit);
+        int[] from = lowerBound(prefix);
+        int[] to = lowerBound(prefix + Character.MAX_VALUE);
+        if (limit <= 0) {
+            return result;
+        }
+        PriorityQueue<Range> ranges = new PriorityQueue<>((a, b) -> compare(b.segment(), b.best(), a.segment(), a.best()));
+        if (from[0] == to[0]) {
+            offer(ranges, from[0], from[1], to[1]);
+        } else {
+            offer(ranges, from[0], from[1], segments[from[0]].entries.length);
+            offerSegments(ranges, from[0] + 1, to[0]);
+            if (to[0] < segments.length) {
+                offer(ranges, to[0], 0, to[1]);
+            }
+        }
+        while (!ranges.isEmpty() && result.size() < limit) {
+            Range range = ranges.poll();
+            if (range.whole()) {
+                // expand the best segment of a run of whole segments only when it reaches the top
+                offer(ranges, range.segment(), 0, segments[range.segment()].entries.length);
+                offerSegments(ranges, range.from(), range.segment());
+                offerSegments(ranges, range.segment() + 1, range.to());
+                continue;
+            }
+            Segment segment = segments[range.segment()];
+            result.add(segment.entries[range.best()]);
+            offer(ranges, range.segment(), range.from(), range.best());
+            offer(ranges, range.segment(), range.best() + 1, range.to());
+        }
+        return result;
+    }
+
+    private void offer(PriorityQueue<Range> ranges, int segment, int from, int to) {
+        if (from < to) {
+            ranges.add(new Range(segment, from, to, segments[segment].tree.best(from, to), false));
+        }
+    }
+
+    private void offerSegments(PriorityQueue<Range> ranges, int from, int to) {
+        if (from < to) {
+            int best = tree.best(from, to);
+            ranges.add(new Range(best, from, to, segments[best].best(), true));
+        }
+    }
+
+    // position of the first entry whose key is not below the given one, as {segment, index}
+    private int[] lowerBound(String key) {
+        int low = 0;
+        int high = segments.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Entry[] entries = segments[mid].entries;
+            if (entries[entries.length - 1].key.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return new int[]{low, low < segments.length ? segments[low].lowerBound(key) : 0};
+    }
+
+    // the last segment starting at or before the entry, so new entries land where they sort
+    private int segmentFor(Entry entry) {
+        int low = 1;
+        int high = segments.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(segments[mid].entries[0], entry) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    // higher score wins, ties go to the entry that sorts first
+    private int compare(int segmentA, int indexA, int segmentB, int indexB) {
+        int cmp = Long.compare(segments[segmentA].entries[indexA].score, segments[segmentB].entries[indexB].score);
+        if (cmp != 0) {
+            return cmp;
+        }
+        cmp = Integer.compare(segmentB, segmentA);
+        return cmp != 0 ? cmp : Integer.compare(indexB, indexA);
+    }
+
+    // a merged segment that grew past twice the target size is cut into even parts
+    private static void split(List<Entry> sorted, List<Segment> result) {
+        int parts = sorted.size() <= 2 * SEGMENT_SIZE ? 1 : (sorted.size() + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        for (int i = 0; i < parts; i++) {
+            List<Entry> part = sorted.subList(sorted.size() * i / parts, sorted.size() * (i + 1) / parts);
+            if (!part.isEmpty()) {
+                result.add(new Segment(part.toArray(new Entry[0])));
+            }
+        }
+    }
+
+    private record Range(int segment, int from, int to, int best, boolean whole) {
+    }
+
+    private static class Segment {
+
+        private final Entry[] entries;
+        private final MaxTree tree;
+
+        private Segment(Entry[] entries) {
+            this.entries = entries;
+            this.tree = new MaxTree(entries.length, (a, b) -> {
+                int cmp = Long.compare(entries[a].score, entries[b].score);
+                return cmp != 0 ? cmp : Integer.compare(b, a);
+            });
+        }
+
+        private int best() {
+            return tree.best(0, entries.length);
+        }
+
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entries[mid].key.compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // linear merge: kept entries keep their order, only the added ones are sorted
+        private List<Entry> merge(List<Entry> removed, List<Entry> added) {
+            Set<Entry> skip = Collections.newSetFromMap(new IdentityHashMap<>());
+            skip.addAll(removed);
+            List<Entry> sorted = new ArrayList<>(added);
+            sorted.sort(ORDER);
+            List<Entry> merged = new ArrayList<>(entries.length + sorted.size());
+            int j = 0;
+            for (Entry current : entries) {
+                if (skip.contains(current)) {
+                    continue;
+                }
+                while (j < sorted.size() && ORDER.compare(sorted.get(j), current) < 0) {
+                    merged.add(sorted.get(j++));
+                }
+                merged.add(current);
+            }
+            merged.addAll(sorted.subList(j, sorted.size()));
+            return merged;
+        }
+    }
+
+    // max segment tree over item indexes; compare returns a positive value when the first item is better
+    private static class MaxTree {
+
+        private final int[] tree;
+        private final int leaves;
+        private final IntBinaryOperator compare;
+
+        private MaxTree(int n, IntBinaryOperator compare) {
+            this.compare = compare;
+            leaves = Math.max(1, Integer.highestOneBit(Math.max(1, n - 1)) << 1);
+            tree = new int[2 * leaves];
+            for (int i = 0; i < leaves; i++) {
+                tree[leaves + i] = i < n ? i : -1;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        private int best(int from, int to) {
+            int best = -1;
+            for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    best = better(best, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    best = better(best, tree[--r]);
+                }
+            }
+            return best;
+        }
+
+        private int better(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return compare.applyAsInt(a, b) > 0 ? a : b;
+        }
+    }
+
+    public static class Entry {
+
+        private final String type;
+        private final long id;
+        private final String name;
+        private final String key;
+        private final long score;
+
+        public Entry(String type, long id, String name, String key, long score) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+            this.key = key != null ? key : "";
+            this.score = score;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Typo-tolerant name matching. Trigrams index the distinct words of product names, so a
+// misspelled query word is first expanded to similar vocabulary words, and products are then
+// scored through the word postings. Not thread-safe for writes, ProductSearchIndex guards it
+// with a read/write lock; concurrent searches each borrow their own scratch buffers.
+public class TrigramIndex {
+
+    private static final int MAX_EXPANSIONS = 8;
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+
+    private final Map<String, Integer> trigramIds = new HashMap<>();
+    private int[][] trigramWords = new int[64][];
+    private int[] trigramWordCounts = new int[64];
+
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private int[] wordTrigramCounts = new int[64];
+    private int[][] wordDocs = new int[64][];
+    private int[] wordDocSizes = new int[64];
+    private int[] wordLiveDocs = new int[64];
+    private int wordCount;
+
+    private final Map<Long, Integer> docsByProduct = new HashMap<>();
+    private long[] productIds = new long[64];
+    private int[][] docWords = new int[64][];
+    private final BitSet deleted = new BitSet();
+    private int docCount;
+    private int deletedCount;
+
+    // one buffer set per concurrent search instead of per request thread
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    public int size() {
+        return docsByProduct.size();
+    }
+
+    public void put(long productId, String name) {
+        remove(productId);
+        int[] ids = Tokenizer.tokenize(name).stream().distinct().mapToInt(this::wordId).toArray();
+
+        if (docCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, docCount * 2);
+            docWords = Arrays.copyOf(docWords, docCount * 2);
+        }
+        int doc = docCount++;
+        productIds[doc] = productId;
+        docWords[doc] = ids;
+        docsByProduct.put(productId, doc);
+        for (int wordId : ids) {
+            wordDocs[wordId] = append(wordDocs[wordId], wordDocSizes[wordId]++, doc);
+            wordLiveDocs[wordId]++;
+        }
+    }
+
+    public boolean remove(long productId) {
+        Integer doc = docsByProduct.remove(productId);
+        if (doc == null) {
+            return false;
+        }
+        deleted.set(doc);
+        deletedCount++;
+        for (int wordId : docWords[doc]) {
+            wordLiveDocs[wordId]--;
+        }
+        if (deletedCount >= MIN_DELETED_TO_COMPACT && deletedCount > docCount / 4) {
+            compact();
+        }
+        return true;
+    }
+
+    // score = average over query words of the best trigram similarity reached by a word of the name
+    public SearchResult search(String query, float threshold, long offset, int limit) {
+        List<String> queryWords = Tokenizer.tokenize(query).stream().distinct().toList();
+        if (queryWords.isEmpty() || size() == 0) {
+            return new SearchResult(0, List.of());
+        }
+        Scratch s = scratchPool.poll();
+        if (s == null) {
+            s = new Scratch();
+        }
+        try {
+            return search(queryWords, threshold, offset, limit, s);
+        } finally {
+            scratchPool.offer(s);
+        }
+    }
+
+    private SearchResult search(List<String> queryWords, float threshold, long offset, int limit, Scratch s) {
+        s.ensureCapacity(docCount, wordCount);
+        s.generation++;
+        int touchedCount = 0;
+
+        for (int w = 0; w < queryWords.size(); w++) {
+            long[] expansions = expand(queryWords.get(w), threshold, s);
+            for (long expansion : expansions) {
+                float similarity = Float.intBitsToFloat((int) (expansion >>> 32));
+                int wordId = (int) expansion;
+                int[] docs = wordDocs[wordId];
+                for (int i = 0; i < wordDocSizes[wordId]; i++) {
+                    int doc = docs[i];
+                    if (s.docGeneration[doc] != s.generation) {
+                        if (deleted.get(doc)) {
+                            continue;
+                        }
+                        s.docGeneration[doc] = s.generation;
+                        s.scores[doc] = 0f;
+                        s.lastWord[doc] = -1;
+                        if (touchedCount == s.touched.length) {
+                            s.touched = Arrays.copyOf(s.touched, touchedCount * 2);
+                        }
+                        s.touched[touchedCount++] = doc;
+                    }
+                    // expansions come best first, so only the first one found counts for this query word
+                    if (s.lastWord[doc] != w) {
+                        s.lastWord[doc] = w;
+                        s.scores[doc] += similarity;
+                    }
+                }
+            }
+        }
+
+        int wanted = (int) Math.min(Integer.MAX_VALUE - 8, offset + limit);
+        LongTopK top = new LongTopK(wanted);
+        int hitCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = s.touched[i];
+            float score = s.scores[doc] / queryWords.size();
+            if (score >= threshold) {
+                hitCount++;
+                top.offer(((long) Float.floatToIntBits(score) << 32) | (~doc & 0xFFFFFFFFL));
+            }
+        }
+
+        long[] keys = top.sortedDescending();
+        List<Long> result = new ArrayList<>();
+        for (long i = offset; i < keys.length; i++) {
+            result.add(productIds[~(int) keys[(int) i]]);
+        }
+        return new SearchResult(hitCount, result);
+    }
+
+    // vocabulary words similar to the query word, as (similarity bits << 32 | word id), best first
+    private long[] expand(String queryWord, float threshold, Scratch s) {
+        List<String> trigrams = trigrams(queryWord);
+        s.wordGeneration++;
+        int candidateCount = 0;
+        for (String trigram : trigrams) {
+            Integer trigramId = trigramIds.get(trigram);
+            if (trigramId == null) {
+                continue;
+            }
+            int[] wordsWithTrigram = trigramWords[trigramId];
+            for (int i = 0; i < trigramWordCounts[trigramId]; i++) {
+                int wordId = wordsWithTrigram[i];
+                if (s.wordMarks[wordId] != s.wordGeneration) {
+                    s.wordMarks[wordId] = s.wordGeneration;
+                    s.overlaps[wordId] = 0;
+                    if (candidateCount == s.candidates.length) {
+                        s.candidates = Arrays.copyOf(s.candidates, candidateCount * 2);
+                    }
+                    s.candidates[candidateCount++] = wordId;
+                }
+                s.overlaps[wordId]++;
+            }
+        }
+        LongTopK top = new LongTopK(MAX_EXPANSIONS);
+        for (int i = 0; i < candidateCount; i++) {
+            int wordId = s.candidates[i];
+            if (wordLiveDocs[wordId] == 0) {
+                continue;
+            }
+            int overlap = s.overlaps[wordId];
+            float similarity = (float) overlap / (trigrams.size() + wordTrigramCounts[wordId] - overlap);
+            if (similarity >= threshold) {
+                top.offer(((long) Float.floatToIntBits(similarity) << 32) | wordId);
+            }
+        }
+        return top.sortedDescending();
+    }
+
+    // word trigrams padded like pg_trgm: "tv" -> "  t", " tv", "tv "
+    static List<String> trigrams(String word) {
+        List<String> trigrams = new ArrayList<>();
+        String padded = "  " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String trigram = padded.substring(i, i + 3);
+            if (!trigrams.contains(trigram)) {
+                trigrams.add(trigram);
+            }
+        }
+        return trigrams;
+    }
+
+    private int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id != null) {
+            return id;
+        }
+        if (wordCount == wordDocs.length) {
+            int capacity = wordCount * 2;
+            wordTrigramCounts = Arrays.copyOf(wordTrigramCounts, capacity);
+            wordDocs = Arrays.copyOf(wordDocs, capacity);
+            wordDocSizes = Arrays.copyOf(wordDocSizes, capacity);
+            wordLiveDocs = Arrays.copyOf(wordLiveDocs, capacity);
+        }
+        int wordId = wordCount++;
+        wordDocs[wordId] = new int[4];
+        wordIds.put(word, wordId);
+
+        List<String> trigrams = trigrams(word);
+        wordTrigramCounts[wordId] = trigrams.size();
+        for (String trigram : trigrams) {
+            int trigramId = trigramIds.computeIfAbsent(trigram, x -> newTrigram());
+            trigramWords[trigramId] = append(trigramWords[trigramId], trigramWordCounts[trigramId]++, wordId);
+        }
+        return wordId;
+    }
+
+    private int newTrigram() {
+        int trigramId = trigramIds.size();
+        if (trigramId == trigramWords.length) {
+            trigramWords = Arrays.copyOf(trigramWords, trigramId * 2);
+            trigramWordCounts = Arrays.copyOf(trigramWordCounts, trigramId * 2);
+        }
+        trigramWords[trigramId] = new int[4];
+        return trigramId;
+    }
+
+    private static int[] append(int[] array, int size, int value) {
+        if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+
+    private void compact() {
+        int[] remap = new int[docCount];
+        int live = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (deleted.get(doc)) {
+                remap[doc] = -1;
+            } else {
+                remap[doc] = live;
+                productIds[live] = productIds[doc];
+                docWords[live] = docWords[doc];
+                docsByProduct.put(productIds[live], live);
+                live++;
+            }
+        }
+        Arrays.fill(docWords, live, docCount, null);
+
+        for (int wordId = 0; wordId < wordCount; wordId++) {
+            int[] docs = wordDocs[wordId];
+            int size = 0;
+            for (int i = 0; i < wordDocSizes[wordId]; i++) {
+                int doc = remap[docs[i]];
+                if (doc >= 0) {
+                    docs[size++] = doc;
+                }
+            }
+            wordDocSizes[wordId] = size;
+            if (size < docs.length / 4) {
+                wordDocs[wordId] = Arrays.copyOf(docs, Math.max(4, size));
+            }
+        }
+
+        docCount = live;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    // per-thread buffers reused across searches; generation stamps replace clearing them
+    private static class Scratch {
+
+        private int generation;
+        private int[] docGeneration = new int[0];
+        private float[] scores = new float[0];
+        private int[] lastWord = new int[0];
+        private int[] touched = new int[64];
+
+        private int wordGeneration;
+        private int[] wordMarks = new int[0];
+        private int[] overlaps = new int[0];
+        private int[] candidates = new int[64];
+
+        private void ensureCapacity(int docs, int words) {
+            if (docGeneration.length < docs) {
+                int capacity = Math.max(docs, docGeneration.length * 3 / 2);
+                docGeneration = Arrays.copyOf(docGeneration, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                lastWord = Arrays.copyOf(lastWord, capacity);
+            }
+            if (wordMarks.length < words) {
+                int capacity = Math.max(words, wordMarks.length * 3 / 2);
+                wordMarks = Arrays.copyOf(wordMarks, capacity);
+                overlaps = Arrays.copyOf(overlaps, capacity);
+            }
+        }
+    }
+
+    // bounded min-heap of primitive keys keeping the largest ones
+    private static class LongTopK {
+
+        private final int capacity;
+        private long[] heap = new long[16];
+        private int size;
+
+        private LongTopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void offer(long key) {
+            if (size < capacity) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, Math.min(capacity, size * 2));
+                }
+                heap[size] = key;
+                siftUp(size++);
+            } else if (capacity > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        private long[] sortedDescending() {
+            long[] keys = Arrays.copyOf(heap, size);
+            Arrays.sort(keys);
+            for (int i = 0, j = keys.length - 1; i < j; i++, j--) {
+                long tmp = keys[i];
+                keys[i] = keys[j];
+                keys[j] = tmp;
+            }
+            return keys;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= heap[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int smallest = left + 1 < size && heap[left + 1] < heap[left] ? left + 1 : left;
+                if (heap[i] <= heap[smallest]) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
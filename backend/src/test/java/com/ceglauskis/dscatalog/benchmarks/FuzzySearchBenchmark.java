@@ -0,0 +1,47 @@
+package com.ceglauskis.dscatalog.benchmarks;
+
+import com.ceglauskis.dscatalog.services.search.SearchResult;
+import com.ceglauskis.dscatalog.services.search.TrigramIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+// Run with: mvn test -Dtest=FuzzySearchBenchmark -Dbench.products=1000000 -Dbench.iterations=200
+public class FuzzySearchBenchmark {
+
+    private static final String[] KINDS = {"Smart TV", "Smartphone", "Notebook", "PC Gamer", "Monitor", "Teclado",
+            "Mouse", "Headset", "Cadeira Gamer", "Impressora", "Roteador", "Tablet", "Câmera", "Caixa de Som", "Geladeira"};
+    private static final String[] BRANDS = {"Samsung", "LG", "Dell", "Lenovo", "Acer", "Asus", "Apple", "Sony",
+            "Philips", "Multilaser", "Positivo", "Xiaomi", "Motorola", "Logitech", "HyperX"};
+    private static final String[] EXTRAS = {"Pro", "Max", "Ultra", "Plus", "Lite", "Slim", "Turbo", "Nitro", "Prime", "Neo"};
+
+    private final int products = Integer.getInteger("bench.products", 1_000_000);
+    private final int iterations = Integer.getInteger("bench.iterations", 200);
+
+    @Test
+    public void fuzzySearchLatency() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        long start = System.nanoTime();
+        for (long id = 1; id <= products; id++) {
+            String name = KINDS[random.nextInt(KINDS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)] + " "
+                    + EXTRAS[random.nextInt(EXTRAS.length)] + " " + random.nextInt(10_000);
+            index.put(id, name);
+        }
+        System.out.printf("products=%d build=%.1fs%n", products, (System.nanoTime() - start) / 1e9);
+
+        for (String query : List.of("Smrt TV", "smasung", "Noteboko Lenvo", "cadera gamr hyperx", "Xiaomi Ultar 1234", "zzz")) {
+            SearchResult result = null;
+            for (int i = 0; i < 20; i++) {
+                result = index.search(query, 0.3f, 0, 12);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                result = index.search(query, 0.3f, 0, 12);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / iterations;
+            System.out.printf("%-22s hits=%-7d avg=%.3f ms%n", query, result.getTotal(), millis);
+        }
+    }
+}
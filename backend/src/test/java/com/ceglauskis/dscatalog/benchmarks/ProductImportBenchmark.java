@@ -0,0 +1,47 @@
+package com.ceglauskis.dscatalog.benchmarks;
+
+import com.ceglauskis.dscatalog.dto.ImportResultDTO;
+import com.ceglauskis.dscatalog.services.ProductImportService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+// Run with: mvn test -Dtest=ProductImportBenchmark -Dbench.rows=200000
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@DirtiesContext
+public class ProductImportBenchmark {
+
+    @Autowired
+    private ProductImportService importService;
+
+    private final int rows = Integer.getInteger("bench.rows", 200_000);
+
+    @Test
+    public void importThroughput() throws Exception {
+        importNdjson(20_000, "warm-up");
+        ImportResultDTO result = importNdjson(rows, "ndjson");
+        Assertions.assertEquals(rows, result.getInserted());
+    }
+
+    private ImportResultDTO importNdjson(int count, String label) throws Exception {
+        StringBuilder body = new StringBuilder(count * 120);
+        for (int i = 0; i < count; i++) {
+            body.append("{\"name\":\"Product ").append(i)
+                    .append("\",\"description\":\"Imported from supplier feed\",\"price\":")
+                    .append(10 + i % 1000).append(".5,\"categoryIds\":[").append(1 + i % 3).append("]}\n");
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        ImportResultDTO result = importService.importNdjson(new ByteArrayInputStream(bytes));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-8s rows=%d inserted=%d rejected=%d time=%.2fs throughput=%.0f rows/s%n",
+                label, count, result.getInserted(), result.getRejected(), seconds, count / seconds);
+        return result;
+    }
+}
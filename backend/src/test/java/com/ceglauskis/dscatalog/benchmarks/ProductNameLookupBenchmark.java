@@ -0,0 +1,70 @@
+package com.ceglauskis.dscatalog.benchmarks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+// Run with: mvn test -Dtest=ProductNameLookupBenchmark -Dbench.products=1000000 -Dbench.iterations=50
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@DirtiesContext
+public class ProductNameLookupBenchmark {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int products = Integer.getInteger("bench.products", 1_000_000);
+    private final int iterations = Integer.getInteger("bench.iterations", 50);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO tb_product (id, name, name_normalized, price, version) " +
+                "SELECT X + 1000, CONCAT('Produto Eletrônico ', X), CONCAT('produto eletronico ', X), 10.0, 0 " +
+                "FROM SYSTEM_RANGE(1, ?)", products);
+        jdbcTemplate.execute("ANALYZE");
+        // H2 would otherwise hand back the cached result of an identical previous query
+        jdbcTemplate.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+    }
+
+    @Test
+    public void nameLookupLatency() {
+        System.out.printf("products=%d iterations=%d%n", products, iterations);
+
+        // before: function-wrapped column, the only way to match case-insensitively
+        measure("before, contains on UPPER(name)",
+                "SELECT id FROM tb_product WHERE UPPER(name) LIKE UPPER(CONCAT('%', ?, '%')) ORDER BY UPPER(name) LIMIT 12",
+                "Eletrônico 99999");
+        measure("before, prefix on LOWER(name)",
+                "SELECT id FROM tb_product WHERE LOWER(name) LIKE CONCAT(?, '%') ORDER BY LOWER(name) LIMIT 12",
+                "produto eletrônico 99999");
+        measure("before, sort by LOWER(name)",
+                "SELECT id FROM tb_product WHERE ? IS NOT NULL ORDER BY LOWER(name) LIMIT 12", "x");
+
+        // after: plain comparisons on the indexed normalized column
+        measure("after, contains on name_normalized",
+                "SELECT id FROM tb_product WHERE name_normalized LIKE CONCAT('%', ?, '%') ORDER BY name_normalized LIMIT 12",
+                "eletronico 99999");
+        measure("after, prefix on name_normalized",
+                "SELECT id FROM tb_product WHERE name_normalized LIKE ? ORDER BY name_normalized LIMIT 12",
+                "produto eletronico 99999%");
+        measure("after, sort by name_normalized",
+                "SELECT id FROM tb_product WHERE ? IS NOT NULL ORDER BY name_normalized LIMIT 12", "x");
+    }
+
+    private void measure(String label, String sql, String argument) {
+        List<Long> ids = List.of();
+        for (int i = 0; i < 3; i++) {
+            ids = jdbcTemplate.queryForList(sql, Long.class, argument);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ids = jdbcTemplate.queryForList(sql, Long.class, argument);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.printf("%-36s rows=%-3d avg=%.3f ms%n", label, ids.size(), millis);
+    }
+}
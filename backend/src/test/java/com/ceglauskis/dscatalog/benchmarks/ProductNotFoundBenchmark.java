@@ -0,0 +1,92 @@
+package com.ceglauskis.dscatalog.benchmarks;
+
+import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Run with: mvn test -Dtest=ProductNotFoundBenchmark -Dbench.threads=8 -Dbench.requests=5000 -Dbench.ids=1000
+// Add -Ddscatalog.cache.products.negative-ttl=0s for the "before" numbers without the negative cache.
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@DirtiesContext
+public class ProductNotFoundBenchmark {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final int threads = Integer.getInteger("bench.threads", 8);
+    private final int requestsPerThread = Integer.getInteger("bench.requests", 5000);
+    private final int missingIds = Integer.getInteger("bench.ids", 1000);
+    private final int stackDepth = Integer.getInteger("bench.depth", 150);
+
+    @Test
+    public void notFoundThroughput() throws Exception {
+        System.out.printf("threads=%d requestsPerThread=%d missingIds=%d negativeTtl=%s%n", threads, requestsPerThread,
+                missingIds, System.getProperty("dscatalog.cache.products.negative-ttl", "default"));
+
+        // before: a regular exception fills its stack trace; after: the stackless 404 exception
+        measureConstruction("before, stack trace captured", () -> new RuntimeException("Entity not found"));
+        measureConstruction("after, stackless", () -> new ResourceNotFoundException("Entity not found"));
+
+        run("warm-up", requestsPerThread / 10);
+        run("GET /products/{missing}", requestsPerThread);
+    }
+
+    private void run(String label, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < requests; i++) {
+                    long id = 1_000_000L + ThreadLocalRandom.current().nextInt(missingIds);
+                    mockMvc.perform(get("/products/{id}", id)).andExpect(status().isNotFound());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-30s requests=%d throughput=%.0f req/s%n", label, (long) threads * requests,
+                threads * requests / seconds);
+    }
+
+    private void measureConstruction(String label, ExceptionFactory factory) {
+        int iterations = 200_000;
+        for (int i = 0; i < iterations / 10; i++) {
+            atDepth(stackDepth, factory);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            atDepth(stackDepth, factory);
+        }
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+        System.out.printf("%-30s depth=%d avg=%.0f ns/exception%n", label, stackDepth, nanos);
+    }
+
+    // framework request handling sits well over a hundred frames deep, so build exceptions there
+    private static RuntimeException atDepth(int depth, ExceptionFactory factory) {
+        return depth == 0 ? factory.create() : atDepth(depth - 1, factory);
+    }
+
+    private interface ExceptionFactory {
+        RuntimeException create();
+    }
+}
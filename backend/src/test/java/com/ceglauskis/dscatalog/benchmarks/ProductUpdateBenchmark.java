@@ -0,0 +1,107 @@
+package com.ceglauskis.dscatalog.benchmarks;
+
+import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.entities.Product;
+import com.ceglauskis.dscatalog.services.ProductService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Run with: mvn test -Dtest=ProductUpdateBenchmark -Dbench.threads=8 -Dbench.products=2 -Dbench.updates=200 -Dbench.mode=both
+@SpringBootTest
+@DirtiesContext
+public class ProductUpdateBenchmark {
+
+    @Autowired
+    private ProductService service;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final int threads = Integer.getInteger("bench.threads", 8);
+    private final int hotProducts = Integer.getInteger("bench.products", 2);
+    private final int updatesPerThread = Integer.getInteger("bench.updates", 200);
+    private final String mode = System.getProperty("bench.mode", "both");
+
+    @Test
+    public void updateThroughputUnderContention() throws Exception {
+        System.out.printf("threads=%d hotProducts=%d updatesPerThread=%d%n", threads, hotProducts, updatesPerThread);
+        if (!mode.equals("pessimistic")) {
+            run("optimistic", this::optimisticUpdate);
+        }
+        if (!mode.equals("optimistic")) {
+            run("pessimistic", this::pessimisticUpdate);
+        }
+    }
+
+    private void run(String name, UpdateStrategy strategy) throws Exception {
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < updatesPerThread; i++) {
+                    long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+                    try {
+                        strategy.update(id);
+                        succeeded.incrementAndGet();
+                    } catch (ConcurrencyFailureException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long attempts = succeeded.get() + conflicts.get();
+        System.out.printf("%-11s attempts=%d succeeded=%d conflicts=%d conflictRate=%.1f%% throughput=%.0f updates/s%n",
+                name, attempts, succeeded.get(), conflicts.get(), 100.0 * conflicts.get() / attempts, succeeded.get() / seconds);
+    }
+
+    // both modes push the same full update through ProductService and differ only in how the row is guarded
+    private void optimisticUpdate(long id) {
+        service.update(id, incrementPrice(service.findById(id)));
+    }
+
+    private void pessimisticUpdate(long id) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Product entity = entityManager.find(Product.class, id, LockModeType.PESSIMISTIC_WRITE);
+            service.update(id, incrementPrice(new ProductDTO(entity, entity.getCategories())));
+        });
+    }
+
+    private static ProductDTO incrementPrice(ProductDTO dto) {
+        ProductDTO changed = new ProductDTO(dto.getId(), dto.getName(), dto.getDescription(),
+                dto.getPrice() + 1, dto.getImgUrl(), dto.getDate());
+        changed.setVersion(dto.getVersion());
+        changed.setCategories(dto.getCategories());
+        return changed;
+    }
+
+    private interface UpdateStrategy {
+        void update(long id);
+    }
+}
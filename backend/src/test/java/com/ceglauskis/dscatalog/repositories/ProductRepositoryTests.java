@@ -1,21 +1,34 @@
 package com.ceglauskis.dscatalog.repositories;
 
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
 import com.ceglauskis.dscatalog.entities.Product;
 import com.ceglauskis.dscatalog.tests.Factory;
+import com.ceglauskis.dscatalog.tests.SqlStatementCounter;
+import com.ceglauskis.dscatalog.util.TextNormalizer;
+import jakarta.persistence.Query;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
+import java.util.List;
 import java.util.Optional;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.ceglauskis.dscatalog.tests.SqlStatementCounter")
 public class ProductRepositoryTests {
 
     @Autowired
     private ProductRepository repository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private long existingId;
     private long inexistingId;
     private long countTotalProducts;
@@ -60,4 +73,60 @@ public class ProductRepositoryTests {
 
         Assertions.assertFalse(result.isPresent());
     }
+
+    @Test
+    public void searchByNameShouldReturnCaseInsensitiveMatches(){
+        Page<ProductListDTO> result = repository.searchByName(TextNormalizer.normalize("pc gAMER"), PageRequest.of(0, 10));
+
+        Assertions.assertEquals(21, result.getTotalElements());
+        Assertions.assertEquals(10, result.getContent().size());
+    }
+
+    @Test
+    public void searchShouldReturnProductsInAnyOfTheCategories(){
+        Page<ProductListDTO> result = repository.search(List.of(1L, 2L), "", PageRequest.of(0, 10));
+
+        Assertions.assertEquals(3, result.getTotalElements());
+    }
+
+    @Test
+    public void searchShouldCombineNameAndCategoryFilters(){
+        Page<ProductListDTO> result = repository.search(List.of(2L), "smart", PageRequest.of(0, 10));
+
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void findListByCategoryShouldReturnPageOfCategoryProducts(){
+        List<ProductListDTO> result = repository.findListByCategory(3L, PageRequest.of(1, 5, Sort.by("id")));
+
+        Assertions.assertEquals(List.of(8L, 9L, 10L, 11L, 12L), result.stream().map(ProductListDTO::getId).toList());
+    }
+
+    @Test
+    public void findListByCategoryShouldSeekJoinTableByCategoryWithoutScanningProducts(){
+        SqlStatementCounter.reset();
+        repository.findListByCategory(3L, PageRequest.of(1, 5, Sort.by("id")));
+        String sql = SqlStatementCounter.last("select");
+
+        // the category id is the first parameter, the rest are the page offset and size
+        Query explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + sql);
+        explain.setParameter(1, 3L);
+        for (int i = 2; i <= sql.chars().filter(x -> x == '?').count(); i++) {
+            explain.setParameter(i, 5);
+        }
+        String plan = explain.getSingleResult().toString();
+
+        Assertions.assertTrue(sql.contains("tb_product_category"), sql);
+        Assertions.assertFalse(plan.contains("tableScan"), plan);
+        Assertions.assertTrue(plan.contains("CATEGORY_ID = ?1 */"), plan);
+    }
+
+    @Test
+    public void findProductsWithCategoriesShouldFetchCategoriesOfGivenIds(){
+        List<Product> result = repository.findProductsWithCategories(List.of(1L, 2L));
+
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertTrue(result.stream().allMatch(x -> !x.getCategories().isEmpty()));
+    }
 }
@@ -1,19 +1,33 @@
 package com.ceglauskis.dscatalog.resources;
 
+import com.ceglauskis.dscatalog.dto.PriceUpdateDTO;
 import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductExportDTO;
+import com.ceglauskis.dscatalog.entities.Product;
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
 import com.ceglauskis.dscatalog.tests.Factory;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import tools.jackson.databind.ObjectMapper;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -32,6 +46,9 @@ public class ProductResourceIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ProductRepository productRepository;
+
     @Test
     public void findAllShouldReturnSortedPageWhenSortByName() throws Exception{
 
@@ -44,7 +61,373 @@ public class ProductResourceIT {
         result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
         result.andExpect(jsonPath("$.content[1].name").value("PC Gamer"));
         result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
+        result.andExpect(jsonPath("$.content[0].description").doesNotExist());
+        result.andExpect(jsonPath("$.content[0].categories").doesNotExist());
+
+    }
+
+    @Test
+    public void findAllShouldReturnFilteredPageWhenNameAndCategoryIdAreInformed() throws Exception{
+
+        ResultActions result =
+                mockMvc.perform(get("/products?name=gamer&categoryId=1,3&sort=name,asc"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(21));
+        result.andExpect(jsonPath("$.content[0].name").value("PC Gamer"));
+    }
+
+    @Test
+    public void findAllShouldIgnoreCaseAndAccentsWhenFilteringByName() throws Exception{
+
+        ResultActions result =
+                mockMvc.perform(get("/products?name=  GÁMER  "));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(21));
+    }
+
+    @Test
+    public void findAllShouldReturnCursorPageWithoutTotalsWhenAfterIsInformed() throws Exception{
+
+        ResultActions result =
+                mockMvc.perform(get("/products?after=&size=12&sort=name,asc"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").doesNotExist());
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+        result.andExpect(jsonPath("$.hasNext").value(true));
+        result.andExpect(jsonPath("$.nextCursor").isNotEmpty());
+    }
 
+    @Test
+    public void findAllShouldReturnBadRequestWhenCursorIsMalformed() throws Exception{
+
+        ResultActions result =
+                mockMvc.perform(get("/products?after=xyz"));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllShouldReturnOnlyRequestedFieldsWhenFieldsIsInformed() throws Exception{
+
+        ResultActions result =
+                mockMvc.perform(get("/products?fields=id,name,price&size=12&sort=name,asc"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(countTotalProducts));
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+        result.andExpect(jsonPath("$.content[0].price").exists());
+        result.andExpect(jsonPath("$.content[0].description").doesNotExist());
+        result.andExpect(jsonPath("$.content[0].categories").doesNotExist());
+    }
+
+    @Test
+    public void findByIdShouldReturnNestedCategoryFieldsWhenFieldsIsInformed() throws Exception{
+
+        ResultActions result = mockMvc.perform(get("/products/{id}?fields=name,categories(name)", 2L));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.id").doesNotExist());
+        result.andExpect(jsonPath("$.name").value("Smart TV"));
+        result.andExpect(jsonPath("$.categories.length()").value(2));
+        result.andExpect(jsonPath("$.categories[0].name").value("Livros"));
+        result.andExpect(jsonPath("$.categories[0].id").doesNotExist());
+
+        mockMvc.perform(get("/products/{id}?fields=name", nonExistingId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void findAllShouldReturnBadRequestWhenFieldIsUnknown() throws Exception{
+
+        mockMvc.perform(get("/products?fields=id,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products?fields=name(id)"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products?fields=id&sort=categories"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllShouldReturnBadRequestWhenFieldsIsCombinedWithCursor() throws Exception{
+
+        mockMvc.perform(get("/products?after=&fields=name"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users?after=&fields=email"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void exportShouldStreamOneJsonLinePerProductWithCategoryIds() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/export"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"));
+
+        String[] lines = result.andReturn().getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(countTotalProducts, lines.length);
+        ProductExportDTO first = objectMapper.readValue(lines[0], ProductExportDTO.class);
+        Assertions.assertEquals(existingId, first.getId());
+        Assertions.assertEquals(List.of(2L), first.getCategoryIds());
+        Assertions.assertEquals(25L, objectMapper.readValue(lines[24], ProductExportDTO.class).getId());
+    }
+
+    @Test
+    public void importNdjsonShouldUpsertValidRowsAndRejectInvalidOnes() throws Exception {
+
+        String body = """
+                {"name":"Imported phone","price":120.0,"categoryIds":[1,2]}
+                {"id":1,"name":"The Lord of the Rings 2nd ed.","price":95.0,"categoryIds":[2]}
+                {"name":"Broken",
+                {"name":"Unknown category","price":10.0,"categoryIds":[1000]}
+                {"id":1000,"name":"Missing product","price":10.0}
+                """;
+
+        ResultActions result =
+                mockMvc.perform(post("/products/import")
+                        .content(body)
+                        .contentType("application/x-ndjson")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.inserted").value(1));
+        result.andExpect(jsonPath("$.updated").value(1));
+        result.andExpect(jsonPath("$.rejected").value(3));
+        result.andExpect(jsonPath("$.errors[0].index").value(3));
+        result.andExpect(jsonPath("$.errors[1].fieldName").value("categoryIds"));
+        result.andExpect(jsonPath("$.errors[2].fieldName").value("id"));
+
+        mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(jsonPath("$.name").value("The Lord of the Rings 2nd ed."));
+    }
+
+    @Test
+    public void importCsvShouldParseQuotedFieldsAndCategoryLists() throws Exception {
+
+        String body = "name,price,description,categoryIds\r\n" +
+                "Gaming chair,350.5,\"Comfortable, \"\"ergonomic\"\"\nchair\",1|3\r\n" +
+                "Desk lamp,abc,,1\r\n";
+
+        ResultActions result =
+                mockMvc.perform(post("/products/import")
+                        .content(body)
+                        .contentType("text/csv")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.inserted").value(1));
+        result.andExpect(jsonPath("$.rejected").value(1));
+        result.andExpect(jsonPath("$.errors[0].index").value(4));
+    }
+
+    @Test
+    public void importCsvShouldIgnoreByteOrderMarkAndPaddedHeaderNames() throws Exception {
+
+        String body = "\uFEFFid, name ,price\r\n" +
+                "1,The Lord of the Rings 3rd ed.,99.0\r\n";
+
+        ResultActions result =
+                mockMvc.perform(post("/products/import")
+                        .content(body.getBytes(StandardCharsets.UTF_8))
+                        .contentType("text/csv")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.inserted").value(0));
+        result.andExpect(jsonPath("$.updated").value(1));
+
+        mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(jsonPath("$.name").value("The Lord of the Rings 3rd ed."));
+    }
+
+    // the import commits its own chunks, so this test runs outside the rolled back test transaction
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void importShouldRetryFailedChunkRowByRowAndKeepGoodRows() throws Exception {
+
+        String body = "{\"name\":\"Retried desk lamp\",\"price\":40.0}\n" +
+                "{\"name\":\"Overlong image url\",\"price\":10.0,\"imgUrl\":\"https://img.com/" + "x".repeat(300) + "\"}\n" +
+                "{\"name\":\"Retried desk chair\",\"price\":60.0}\n";
+
+        ResultActions result =
+                mockMvc.perform(post("/products/import")
+                        .content(body)
+                        .contentType("application/x-ndjson")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        List<Long> imported = productRepository.findAll().stream()
+                .filter(x -> x.getName().startsWith("Retried desk")).map(Product::getId).toList();
+        for (Long id : imported) {
+            mockMvc.perform(delete("/products/{id}", id)).andExpect(status().isNoContent());
+        }
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.inserted").value(2));
+        result.andExpect(jsonPath("$.rejected").value(1));
+        result.andExpect(jsonPath("$.errors[0].index").value(2));
+        Assertions.assertEquals(2, imported.size());
+    }
+
+    @Test
+    public void searchShouldReturnProductsRankedByRelevance() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/search?q=gamer nitro&size=5"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(21));
+        result.andExpect(jsonPath("$.content[0].id").value(11L));
+        result.andExpect(jsonPath("$.content[0].categories").exists());
+    }
+
+    @Test
+    public void searchShouldTolerateTyposWhenModeIsFuzzy() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/search?q=Smrt TV&mode=fuzzy"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].name").value("Smart TV"));
+    }
+
+    @Test
+    public void searchShouldReturnBadRequestWhenQueryIsBlank() throws Exception {
+
+        mockMvc.perform(get("/products/search?q= "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void facetsShouldIntersectCategoriesAndCountPriceBuckets() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/facets?categoryId=1&categoryId=3"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(1));
+        result.andExpect(jsonPath("$.content[0].name").value("Smart TV"));
+        result.andExpect(jsonPath("$.categories[?(@.id == 3)].count").value(1));
+        result.andExpect(jsonPath("$.prices[?(@.from == 2000.0)].count").value(1));
+
+        mockMvc.perform(get("/products/facets?minPrice=2000&maxPrice=100"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void suggestShouldReturnCategoriesAndProductsMatchingPrefix() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/suggest?prefix=ELETRO&limit=5"));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$[0].type").value("category"));
+        result.andExpect(jsonPath("$[0].name").value("Eletrônicos"));
+
+        mockMvc.perform(get("/products/suggest?prefix=pc gamer t&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].type").value("product"));
+    }
+
+    @Test
+    public void findByIdShouldNotExposeCategorySortKey() throws Exception{
+
+        mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.categories[0].name").exists())
+                .andExpect(jsonPath("$.categories[0].nameNormalized").doesNotExist());
+    }
+
+    @Test
+    public void findByIdShouldReturnNotModifiedWhenIfNoneMatchHasCurrentETag() throws Exception{
+
+        String eTag = mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        ResultActions result =
+                mockMvc.perform(get("/products/{id}", existingId).header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(content().string(""));
+    }
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenIfNoneMatchHasCatalogVersion() throws Exception{
+
+        String eTag = mockMvc.perform(get("/products?page=0&size=12"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        ResultActions result =
+                mockMvc.perform(get("/products?page=0&size=12").header(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        result.andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void insertBatchShouldInsertValidItemsAndReportInvalidOnes() throws Exception {
+
+        ProductDTO valid = Factory.createProductDTO();
+        ProductDTO invalid = Factory.createProductDTO();
+        invalid.setName("TV");
+        invalid.setPrice(-1.0);
+        ProductDTO unknownCategory = Factory.createProductDTO();
+        unknownCategory.getCategories().get(0).setId(1000L);
+        String jsonBody = objectMapper.writeValueAsString(List.of(valid, invalid, unknownCategory, valid));
+
+        ResultActions result =
+                mockMvc.perform(post("/products/batch")
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.received").value(4));
+        result.andExpect(jsonPath("$.inserted").value(2));
+        result.andExpect(jsonPath("$.errors.length()").value(3));
+        result.andExpect(jsonPath("$.errors[0].index").value(1));
+        result.andExpect(jsonPath("$.errors[2].index").value(2));
+        result.andExpect(jsonPath("$.errors[2].fieldName").value("categories"));
+
+        Long insertedId = objectMapper.readTree(result.andReturn().getResponse().getContentAsString())
+                .get("ids").get(1).asLong();
+        mockMvc.perform(get("/products/{id}", insertedId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.categories[0].id").value(2L));
+    }
+
+    @Test
+    public void updatePricesShouldApplyPercentageToCategoryProducts() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(new PriceUpdateDTO(null, 1L, null, 10.0, null));
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/prices")
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.affected").value(1));
+
+        mockMvc.perform(get("/products/{id}", 2L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.price").value(2409.0));
+    }
+
+    @Test
+    public void updatePricesShouldReturnBadRequestWhenTargetIsMissing() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(new PriceUpdateDTO(null, null, 10.0, null, null));
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/prices")
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
     }
 
     @Test
@@ -84,4 +467,160 @@ public class ProductResourceIT {
         result.andExpect(status().isNotFound());
     }
 
+    @Test
+    public void updateShouldReturnBadRequestWhenCategoryDoesNotExist() throws Exception {
+
+        ProductDTO dto = Factory.createProductDTO();
+        dto.getCategories().get(0).setId(1000L);
+        String jsonBody = objectMapper.writeValueAsString(dto);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", existingId)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void updateShouldReturnBadRequestWhenVersionIsMissing() throws Exception {
+
+        ProductDTO dto = Factory.createProductDTO();
+        dto.setVersion(null);
+        String jsonBody = objectMapper.writeValueAsString(dto);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", existingId)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void updateShouldReturnConflictWhenVersionIsStale() throws Exception {
+
+        ProductDTO dto = Factory.createProductDTO();
+        dto.setVersion(-1);
+        String jsonBody = objectMapper.writeValueAsString(dto);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", existingId)
+                        .content(jsonBody)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    public void patchShouldChangeOnlySuppliedFieldsWhenIdExists() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", existingId)
+                        .content("{\"price\": 120.0}")
+                        .contentType("application/merge-patch+json")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.price").value(120.0));
+        result.andExpect(jsonPath("$.name").value("The Lord of the Rings"));
+
+        mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(jsonPath("$.price").value(120.0))
+                .andExpect(jsonPath("$.categories[0].id").value(2L));
+    }
+
+    @Test
+    public void patchShouldValidateOnlySuppliedFields() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", existingId)
+                        .content("{\"name\": \"TV\", \"price\": -1}")
+                        .contentType("application/merge-patch+json")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableContent());
+        result.andExpect(jsonPath("$.fieldMessages.length()").value(2));
+    }
+
+    @Test
+    public void patchShouldReturnBadRequestWhenFieldIsNotPatchable() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", existingId)
+                        .content("{\"id\": 5}")
+                        .contentType("application/merge-patch+json")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void patchShouldReturnNotFoundWhenIdDoesNotExist() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", nonExistingId)
+                        .content("{\"price\": 120.0}")
+                        .contentType("application/merge-patch+json")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void patchShouldReturnConflictWhenVersionIsStale() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", existingId)
+                        .content("{\"price\": 120.0, \"version\": -1}")
+                        .contentType("application/merge-patch+json")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    public void findByIdsShouldReturnProductsInRequestOrderAndReportMissingIds() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(get("/products?ids=3,1000,1")
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(2));
+        result.andExpect(jsonPath("$.content[0].id").value(3L));
+        result.andExpect(jsonPath("$.content[1].id").value(existingId));
+        result.andExpect(jsonPath("$.content[1].categories[0].id").value(2L));
+        result.andExpect(jsonPath("$.missing[0]").value(nonExistingId));
+    }
+
+    @Test
+    public void findByIdsShouldReturnBadRequestWhenCombinedWithFieldsOrCursor() throws Exception {
+
+        mockMvc.perform(get("/products?ids=1,2&fields=name"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products?ids=1&after="))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products?ids=1&after=&fields=name"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findByIdsShouldAcceptIdListInRequestBody() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(post("/products/multi-get")
+                        .content(objectMapper.writeValueAsString(List.of(2L, existingId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").value(2L));
+        result.andExpect(jsonPath("$.content[1].id").value(existingId));
+        result.andExpect(jsonPath("$.missing").isEmpty());
+    }
+
 }
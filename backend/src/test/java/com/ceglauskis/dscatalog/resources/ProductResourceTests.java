@@ -1,6 +1,8 @@
 package com.ceglauskis.dscatalog.resources;
 
 import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
+import com.ceglauskis.dscatalog.services.ProductImportService;
 import com.ceglauskis.dscatalog.services.ProductService;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
@@ -10,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -22,6 +25,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,17 +41,21 @@ public class ProductResourceTests {
     @MockitoBean
     private ProductService service;
 
+    @MockitoBean
+    private ProductImportService importService;
+
     private Long existingId = 1L;
     private Long nonExistingId = 2L;
     private Long dependentId = 3L;
 
     private ProductDTO dto = Factory.createProductDTO();
 
-    private PageImpl<ProductDTO> page = new PageImpl<>(List.of(dto));
+    private PageImpl<ProductListDTO> page = new PageImpl<>(List.of(
+            new ProductListDTO(dto.getId(), dto.getName(), dto.getPrice(), dto.getImgUrl(), dto.getDate())));
 
     @Test
     public void findAllShouldReturnPage() throws Exception{
-        when(service.findAllPaged(any())).thenReturn(page);
+        when(service.findAllPaged(any(), any(), any())).thenReturn(page);
 
         ResultActions result = mvc.perform(get("/products").accept(MediaType.APPLICATION_JSON));
 
@@ -68,6 +76,20 @@ public class ProductResourceTests {
         result.andExpect(jsonPath("$.description").exists());
     }
 
+    @Test
+    public void findByIdShouldReturnNotModifiedWithoutLoadingProductWhenETagMatches() throws Exception{
+
+        when(service.findVersionTag(existingId)).thenReturn("1.0.x");
+
+        ResultActions result = mvc.perform(get("/products/{id}", existingId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1.0.x\"")
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(header().string(HttpHeaders.ETAG, "\"1.0.x\""));
+        verify(service, never()).findById(any());
+    }
+
     @Test
     public void findByIdShouldReturnNotFoundExceptionWhenIdDoesNotExist() throws Exception{
 
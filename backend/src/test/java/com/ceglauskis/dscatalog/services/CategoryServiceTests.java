@@ -0,0 +1,117 @@
+package com.ceglauskis.dscatalog.services;
+
+import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.entities.Category;
+import com.ceglauskis.dscatalog.repositories.CategoryRepository;
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import com.ceglauskis.dscatalog.services.events.CategoryCountsChangedEvent;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class CategoryServiceTests {
+
+    @InjectMocks
+    private CategoryService service;
+
+    @Mock
+    private CategoryRepository repository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ReadOnlyTransactions readOnlyTransactions = new ReadOnlyTransactions(Mockito.mock(PlatformTransactionManager.class));
+
+    private List<Category> categories = List.of(
+            new Category(1L, "Livros"), new Category(2L, "Eletrônicos"), new Category(3L, "Computadores"));
+
+    @Test
+    public void findAllPagedShouldServeSortedPagesFromSnapshot(){
+        Mockito.when(repository.findAll()).thenReturn(categories);
+
+        Page<CategoryDTO> first = service.findAllPaged(PageRequest.of(0, 2, Sort.by("name")));
+        Page<CategoryDTO> second = service.findAllPaged(PageRequest.of(1, 2, Sort.by("name")));
+
+        Assertions.assertEquals(3, first.getTotalElements());
+        Assertions.assertEquals("Computadores", first.getContent().get(0).getName());
+        Assertions.assertEquals("Eletrônicos", first.getContent().get(1).getName());
+        Assertions.assertEquals("Livros", second.getContent().get(0).getName());
+        Mockito.verify(repository, Mockito.times(1)).findAll();
+    }
+
+    @Test
+    public void findByIdShouldThrowResourceNotFoundExceptionWhenIdIsNotInSnapshot(){
+        Mockito.when(repository.findAll()).thenReturn(categories);
+
+        Assertions.assertEquals("Livros", service.findById(1L).getName());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            service.findById(1000L);
+        });
+    }
+
+    @Test
+    public void findAllPagedShouldThrowInvalidRequestExceptionWhenSortPropertyIsUnknown(){
+        Mockito.when(repository.findAll()).thenReturn(categories);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.findAllPaged(PageRequest.of(0, 10, Sort.by("products")));
+        });
+    }
+
+    @Test
+    public void onCategoryCommittedShouldSwapInRebuiltSnapshot(){
+        Mockito.when(repository.findAll()).thenReturn(categories, List.of(new Category(4L, "Games")));
+
+        Assertions.assertTrue(service.existsById(1L));
+        service.onCategoryCommitted(new CategoryChangedEvent(4L));
+
+        Assertions.assertFalse(service.existsById(1L));
+        Assertions.assertTrue(service.existsById(4L));
+    }
+
+    @Test
+    public void onCategoryCountsCommittedShouldRefreshOnlyAffectedCountsWithoutReloading(){
+        Mockito.when(repository.findAll()).thenReturn(categories);
+        Mockito.when(repository.findProductCountsByIds(List.of(2L))).thenReturn(List.<Object[]>of(new Object[]{2L, 7L}));
+        CategoryDTO before = service.findById(1L);
+
+        service.onCategoryCountsCommitted(new CategoryCountsChangedEvent(List.of(2L)));
+
+        Assertions.assertEquals(7L, service.findById(2L).getProductCount());
+        Assertions.assertSame(before, service.findById(1L));
+        Mockito.verify(repository, Mockito.times(1)).findAll();
+    }
+
+    @Test
+    public void updateShouldReturnVersionIncrementedByFlush(){
+        Category category = new Category(1L, "Livros");
+        ReflectionTestUtils.setField(category, "version", 0);
+        Mockito.when(repository.getReferenceById(1L)).thenReturn(category);
+        Mockito.doAnswer(x -> {
+            ReflectionTestUtils.setField(category, "version", 1);
+            return null;
+        }).when(repository).flush();
+
+        CategoryDTO result = service.update(1L, new CategoryDTO(1L, "Books"));
+
+        Assertions.assertEquals(1, result.getVersion());
+        Assertions.assertEquals("Books", result.getName());
+    }
+}
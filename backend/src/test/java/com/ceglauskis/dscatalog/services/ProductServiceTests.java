@@ -1,11 +1,20 @@
 package com.ceglauskis.dscatalog.services;
 
+import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
+import com.ceglauskis.dscatalog.dto.MultiGetDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateDTO;
+import com.ceglauskis.dscatalog.dto.PriceUpdateResultDTO;
 import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
 import com.ceglauskis.dscatalog.entities.Category;
 import com.ceglauskis.dscatalog.entities.Product;
 import com.ceglauskis.dscatalog.repositories.CategoryRepository;
 import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.cache.ProductCache;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
 import com.ceglauskis.dscatalog.services.exceptions.DatabaseException;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
 import com.ceglauskis.dscatalog.tests.Factory;
 import jakarta.persistence.EntityNotFoundException;
@@ -16,13 +25,19 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,22 +53,117 @@ public class ProductServiceTests {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private CategoryService categoryService;
+
+    @Spy
+    private ProductCache productCache = new ProductCache(1_000_000L, Duration.ofSeconds(2), Duration.ofSeconds(30));
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private long existingId = 1L;
     private long nonExistingId = 2L;
     private long dependentId = 3L;
     private Category category = new Category(2L, "Eletrônicos");
     private Product product = Factory.createProduct();
-    private PageImpl<Product> page = new PageImpl<>(List.of(product));
+    private PageImpl<ProductListDTO> listPage = new PageImpl<>(List.of(
+            new ProductListDTO(existingId, product.getName(), product.getPrice(), product.getImgUrl(), product.getDate())));
     private ProductDTO dto = Factory.createProductDTO();
 
     @Test
-    public void findAllPagedShouldReturnPage(){
-        Mockito.when(repository.findAll((Pageable) ArgumentMatchers.any())).thenReturn(page);
+    public void findAllPagedShouldReturnListProjectionWithoutLoadingEntities(){
+        Mockito.when(repository.findAllForList(ArgumentMatchers.any())).thenReturn(listPage);
 
         Pageable pageable = PageRequest.of(0, 10);
-        Page<ProductDTO> result = service.findAllPaged(pageable);
-        Assertions.assertNotNull(result);
-        Mockito.verify(repository, Mockito.times(1)).findAll(pageable);
+        Page<ProductListDTO> result = service.findAllPaged(pageable);
+        Assertions.assertEquals(existingId, result.getContent().get(0).getId());
+        Mockito.verify(repository, Mockito.times(1)).findAllForList(pageable);
+        Mockito.verify(repository, Mockito.never()).findProductsWithCategories(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void findAllByCursorShouldBuildPageFromProductsFetchedWithCategories(){
+        Product windowed = new Product(existingId, "Phone", "Good phone", 800.0, null, null);
+        Mockito.when(repository.findBy(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any()))
+                .thenReturn(Window.from(List.of(windowed), x -> ScrollPosition.offset(x)));
+        Mockito.when(repository.findProductsWithCategories(List.of(existingId))).thenReturn(List.of(product));
+
+        CursorPageDTO<ProductDTO> result = service.findAllByCursor(null, PageRequest.of(0, 10));
+
+        Assertions.assertEquals(List.of(2L), result.getContent().get(0).getCategories().stream().map(CategoryDTO::getId).toList());
+        Assertions.assertNull(result.getNextCursor());
+    }
+
+    @Test
+    public void updatePricesShouldRunSingleUpdateAndPublishTouchedIdsWhenIdsAreInformed(){
+        Mockito.when(repository.findIdsForPriceUpdate(List.of(existingId, dependentId), 1.1, 0.0))
+                .thenReturn(List.of(existingId, dependentId));
+        Mockito.when(repository.updatePrices(List.of(existingId, dependentId), 1.1, 0.0)).thenReturn(2);
+
+        PriceUpdateResultDTO result = service.updatePrices(new PriceUpdateDTO(List.of(existingId, dependentId), null, null, 10.0, null));
+
+        Assertions.assertEquals(2, result.getAffected());
+        Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(ArgumentMatchers.<ProductChangedEvent>argThat(
+                x -> x.getIds().equals(List.of(existingId, dependentId))));
+        Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void updatePricesShouldPublishOnlyIdsThatPassTheGuard(){
+        Mockito.when(repository.findIdsForPriceUpdate(List.of(existingId, nonExistingId, dependentId), 1.0, -50.0))
+                .thenReturn(List.of(existingId));
+        Mockito.when(repository.updatePrices(List.of(existingId), 1.0, -50.0)).thenReturn(1);
+
+        PriceUpdateResultDTO result = service.updatePrices(
+                new PriceUpdateDTO(List.of(existingId, nonExistingId, dependentId), null, null, null, -50.0));
+
+        Assertions.assertEquals(1, result.getAffected());
+        Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(ArgumentMatchers.<ProductChangedEvent>argThat(
+                x -> x.getIds().equals(List.of(existingId))));
+    }
+
+    @Test
+    public void updatePricesShouldUpdateCategoryInOneStatementAndPublishItsIdsInChunks(){
+        Mockito.when(categoryService.existsById(2L)).thenReturn(true);
+        Mockito.when(repository.updatePricesByCategory(2L, 1.1, 0.0)).thenReturn(3);
+        Mockito.when(repository.findIdsByCategoryAfter(ArgumentMatchers.eq(2L), ArgumentMatchers.eq(0L), ArgumentMatchers.any()))
+                .thenReturn(List.of(1L, 4L));
+        Mockito.when(repository.findIdsByCategoryAfter(ArgumentMatchers.eq(2L), ArgumentMatchers.eq(4L), ArgumentMatchers.any()))
+                .thenReturn(List.of(7L));
+        Mockito.when(repository.findIdsByCategoryAfter(ArgumentMatchers.eq(2L), ArgumentMatchers.eq(7L), ArgumentMatchers.any()))
+                .thenReturn(List.of());
+
+        PriceUpdateResultDTO result = service.updatePrices(new PriceUpdateDTO(null, 2L, null, 10.0, null));
+
+        Assertions.assertEquals(3, result.getAffected());
+        Mockito.verify(eventPublisher).publishEvent(ArgumentMatchers.<ProductChangedEvent>argThat(x -> x.getIds().equals(List.of(1L, 4L))));
+        Mockito.verify(eventPublisher).publishEvent(ArgumentMatchers.<ProductChangedEvent>argThat(x -> x.getIds().equals(List.of(7L))));
+        Mockito.verify(repository, Mockito.never()).findIdsForPriceUpdate(ArgumentMatchers.any(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.anyDouble());
+    }
+
+    @Test
+    public void updatePricesShouldNotPublishWhenNoCategoryProductPassesTheGuard(){
+        Mockito.when(categoryService.existsById(2L)).thenReturn(true);
+        Mockito.when(repository.updatePricesByCategory(2L, 1.0, -10_000.0)).thenReturn(0);
+
+        PriceUpdateResultDTO result = service.updatePrices(new PriceUpdateDTO(null, 2L, null, null, -10_000.0));
+
+        Assertions.assertEquals(0, result.getAffected());
+        Mockito.verify(repository, Mockito.never()).findIdsByCategoryAfter(ArgumentMatchers.any(), ArgumentMatchers.any(),
+                ArgumentMatchers.any());
+        Mockito.verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void updatePricesShouldThrowInvalidRequestExceptionWhenMoreThanOneOperationIsInformed(){
+        PriceUpdateDTO priceUpdate = new PriceUpdateDTO(List.of(existingId), null, 10.0, null, 5.0);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.updatePrices(priceUpdate);
+        });
+        Mockito.verifyNoInteractions(repository);
     }
 
     @Test
@@ -68,6 +178,42 @@ public class ProductServiceTests {
         Mockito.verify(repository, Mockito.times(1)).findById(existingId);
     }
 
+    @Test
+    public void findByIdShouldServeRepeatedLookupsFromCache(){
+        Mockito.when(repository.findById(existingId)).thenReturn(Optional.of(product));
+
+        service.findById(existingId);
+        ProductDTO result = service.findById(existingId);
+
+        Assertions.assertEquals(product.getId(), result.getId());
+        Assertions.assertEquals(1, service.getCacheStats().getHitCount());
+        Mockito.verify(repository, Mockito.times(1)).findById(existingId);
+    }
+
+    @Test
+    public void findByIdsShouldLoadOnlyCacheMissesAndKeepRequestOrder(){
+        Mockito.when(repository.findById(existingId)).thenReturn(Optional.of(product));
+        service.findById(existingId);
+        Product other = Factory.createProduct();
+        other.setId(dependentId);
+        Mockito.when(repository.findProductsWithCategories(ArgumentMatchers.argThat(
+                x -> x.size() == 2 && x.containsAll(List.of(dependentId, nonExistingId))))).thenReturn(List.of(other));
+
+        MultiGetDTO<ProductDTO> result = service.findByIds(List.of(dependentId, nonExistingId, existingId, dependentId));
+
+        Assertions.assertEquals(List.of(dependentId, existingId), result.getContent().stream().map(ProductDTO::getId).toList());
+        Assertions.assertEquals(List.of(nonExistingId), result.getMissing());
+        Mockito.verify(repository, Mockito.times(1)).findProductsWithCategories(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void findByIdsShouldThrowInvalidRequestExceptionWhenNoIdIsInformed(){
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.findByIds(List.of());
+        });
+        Mockito.verifyNoInteractions(repository);
+    }
+
     @Test
     public void findByIdShouldResourceNotFoundExceptionWhenIsDoesNotExist(){
         Mockito.when(repository.findById(nonExistingId)).thenReturn(Optional.empty());
@@ -80,6 +226,7 @@ public class ProductServiceTests {
     @Test
     public void insertShouldReturnProductDTOWhenIdIsValid(){
         Mockito.when(repository.save(ArgumentMatchers.any())).thenReturn(product);
+        Mockito.when(categoryService.existsById(category.getId())).thenReturn(true);
 
         ProductDTO result = service.insert(dto);
 
@@ -91,15 +238,29 @@ public class ProductServiceTests {
 
     @Test
     public void updateShouldReturnProductWhenIdIsValid(){
+        ReflectionTestUtils.setField(product, "version", 0);
         Mockito.when(repository.save(ArgumentMatchers.any())).thenReturn(product);
         Mockito.when(repository.getReferenceById(existingId)).thenReturn(product);
-        Mockito.when(categoryRepository.getReferenceById(category.getId())).thenReturn(category);
+        Mockito.when(categoryService.existsById(category.getId())).thenReturn(true);
 
         ProductDTO result = service.update(existingId, dto);
 
         Assertions.assertNotNull(result);
+        Assertions.assertEquals(1, product.getCategories().size());
 
         Mockito.verify(repository, Mockito.times(1)).save(product);
+        // the product already holds the category, so the association is left untouched
+        Mockito.verify(categoryRepository, Mockito.never()).getReferenceById(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void insertShouldThrowInvalidRequestExceptionWhenCategoryDoesNotExist(){
+        Mockito.when(categoryService.existsById(category.getId())).thenReturn(false);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.insert(dto);
+        });
+        Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any());
     }
 
     @Test
@@ -111,14 +272,26 @@ public class ProductServiceTests {
         });
     }
 
+    @Test
+    public void updateShouldThrowInvalidRequestExceptionWhenVersionIsMissing(){
+        dto.setVersion(null);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.update(existingId, dto);
+        });
+        Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any());
+    }
+
     @Test
     public void deleteShouldDatabaseExceptionWhenDependentId(){
         Mockito.doThrow(DataIntegrityViolationException.class).when(repository).deleteById(dependentId);
         Mockito.when(repository.existsById(dependentId)).thenReturn(true);
 
-        Assertions.assertThrows(DatabaseException.class, () -> {
+        DatabaseException e = Assertions.assertThrows(DatabaseException.class, () -> {
             service.delete(dependentId);
         });
+        Assertions.assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+        Assertions.assertTrue(e.getStackTrace().length > 0);
     }
 
     @Test
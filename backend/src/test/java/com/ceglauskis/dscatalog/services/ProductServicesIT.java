@@ -1,8 +1,15 @@
 package com.ceglauskis.dscatalog.services;
 
+import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.CursorPageDTO;
 import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.dto.ProductCountRepairDTO;
+import com.ceglauskis.dscatalog.dto.ProductListDTO;
+import com.ceglauskis.dscatalog.repositories.CategoryRepository;
 import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
 import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.tests.Factory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +20,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @SpringBootTest
 @Transactional
 public class ProductServicesIT {
@@ -23,10 +35,22 @@ public class ProductServicesIT {
     @Autowired
     private ProductRepository repository;
 
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
     private Long existingId = 1L;
     private Long nonExistingId = 1000L;
     private Long countTotalProducts = 25L;
 
+    private Map<Long, Long> storedProductCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        categoryRepository.findProductCounts().forEach(row -> counts.put((Long) row[0], (Long) row[1]));
+        return counts;
+    }
+
     @BeforeEach
     void setup() throws Exception{
 
@@ -47,11 +71,44 @@ public class ProductServicesIT {
         });
     }
 
+    @Test
+    public void productWritesShouldKeepCategoryProductCountsInSync(){
+        Assertions.assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 23L), storedProductCounts());
+
+        ProductDTO dto = Factory.createProductDTO();
+        dto.getCategories().clear();
+        dto.getCategories().add(new CategoryDTO(1L, null));
+        ProductDTO inserted = service.insert(dto);
+        Assertions.assertEquals(Map.of(1L, 2L, 2L, 2L, 3L, 23L), storedProductCounts());
+
+        dto.getCategories().add(new CategoryDTO(3L, null));
+        dto.setVersion(inserted.getVersion());
+        service.update(inserted.getId(), dto);
+        Assertions.assertEquals(Map.of(1L, 2L, 2L, 2L, 3L, 24L), storedProductCounts());
+
+        service.delete(inserted.getId());
+        Assertions.assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 23L), storedProductCounts());
+    }
+
+    @Test
+    public void repairProductCountsShouldReportAndFixDrift(){
+        categoryRepository.addProductCount(List.of(2L), 5L);
+
+        ProductCountRepairDTO result = categoryService.repairProductCounts();
+
+        Assertions.assertEquals(3, result.getChecked());
+        Assertions.assertEquals(1, result.getRepaired());
+        Assertions.assertEquals(7L, result.getDrift().get(0).getStored());
+        Assertions.assertEquals(2L, result.getDrift().get(0).getActual());
+        Assertions.assertEquals(Map.of(1L, 1L, 2L, 2L, 3L, 23L), storedProductCounts());
+        Assertions.assertEquals(0, categoryService.repairProductCounts().getRepaired());
+    }
+
     @Test
     public void findAllPagedShouldReturnPagedWhenPage0Size10(){
         PageRequest pageRequest = PageRequest.of(0, 10);
 
-        Page<ProductDTO> result = service.findAllPaged(pageRequest);
+        Page<ProductListDTO> result = service.findAllPaged(pageRequest);
 
         Assertions.assertFalse(result.isEmpty());
         Assertions.assertEquals(0, result.getNumber());
@@ -63,7 +120,7 @@ public class ProductServicesIT {
     public void findAllPagedShouldReturnEmpytPagedWhenPageDoesNotExist(){
         PageRequest pageRequest = PageRequest.of(50, 10);
 
-        Page<ProductDTO> result = service.findAllPaged(pageRequest);
+        Page<ProductListDTO> result = service.findAllPaged(pageRequest);
 
         Assertions.assertTrue(result.isEmpty());
     }
@@ -72,7 +129,7 @@ public class ProductServicesIT {
     public void findAllPagedShouldReturnSortedPagedWhenSortBtName(){
         PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
 
-        Page<ProductDTO> result = service.findAllPaged(pageRequest);
+        Page<ProductListDTO> result = service.findAllPaged(pageRequest);
 
         Assertions.assertFalse(result.isEmpty());
         Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
@@ -80,4 +137,54 @@ public class ProductServicesIT {
         Assertions.assertEquals("PC Gamer Alfa", result.getContent().get(2).getName());
     }
 
+    @Test
+    public void findAllPagedShouldReturnPageOrderWhenSortByPriceDesc(){
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by("price").descending());
+
+        Page<ProductListDTO> result = service.findAllPaged(pageRequest);
+
+        Assertions.assertEquals("PC Gamer Foo", result.getContent().get(0).getName());
+        Assertions.assertEquals("PC Gamer Boo", result.getContent().get(1).getName());
+        Assertions.assertEquals("PC Gamer Max", result.getContent().get(2).getName());
+    }
+
+    @Test
+    public void findByCategoryShouldReturnSortedPageWithIndexedCount(){
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by("price"));
+
+        Page<ProductListDTO> result = service.findByCategory(1L, pageRequest);
+
+        Assertions.assertEquals(1, result.getTotalElements());
+        Assertions.assertEquals("Smart TV", result.getContent().get(0).getName());
+        Assertions.assertEquals(23, service.findByCategory(3L, pageRequest).getTotalElements());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> service.findByCategory(nonExistingId, pageRequest));
+    }
+
+    @Test
+    public void findAllByCursorShouldWalkWholeCatalogWithoutRepeatsWhenSortByPrice(){
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("price"));
+        List<ProductDTO> products = new ArrayList<>();
+
+        CursorPageDTO<ProductDTO> result = service.findAllByCursor("", pageRequest);
+        products.addAll(result.getContent());
+        while (result.isHasNext()) {
+            result = service.findAllByCursor(result.getNextCursor(), pageRequest);
+            products.addAll(result.getContent());
+        }
+
+        Assertions.assertEquals(countTotalProducts, products.stream().map(ProductDTO::getId).distinct().count());
+        for (int i = 1; i < products.size(); i++) {
+            Assertions.assertTrue(products.get(i - 1).getPrice() <= products.get(i).getPrice());
+        }
+        Assertions.assertFalse(products.get(0).getCategories().isEmpty());
+    }
+
+    @Test
+    public void findAllByCursorShouldThrowInvalidRequestExceptionWhenCursorIsMalformed(){
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            service.findAllByCursor("not-a-cursor", pageRequest);
+        });
+    }
 }
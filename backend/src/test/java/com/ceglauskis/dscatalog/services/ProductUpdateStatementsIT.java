@@ -0,0 +1,97 @@
+package com.ceglauskis.dscatalog.services;
+
+import com.ceglauskis.dscatalog.dto.CategoryDTO;
+import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.tests.SqlStatementCounter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.ceglauskis.dscatalog.tests.SqlStatementCounter")
+@Transactional
+public class ProductUpdateStatementsIT {
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long existingId = 2L;
+    private ProductDTO dto;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // product 2 belongs to categories 1 and 3
+        ProductDTO current = service.findById(existingId);
+        dto = new ProductDTO(current.getId(), current.getName(), current.getDescription(), current.getPrice(),
+                current.getImgUrl(), current.getDate());
+        dto.setVersion(current.getVersion());
+        current.getCategories().forEach(x -> dto.getCategories().add(new CategoryDTO(x.getId(), x.getName())));
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void updateShouldWriteNothingWhenNothingChanged() {
+        service.update(existingId, dto);
+
+        Assertions.assertEquals(0, SqlStatementCounter.writes());
+    }
+
+    @Test
+    public void updateShouldOnlyUpdateProductRowWhenOnlyScalarChanged() {
+        dto.setPrice(dto.getPrice() + 1);
+
+        service.update(existingId, dto);
+
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_product "));
+        Assertions.assertEquals(1, SqlStatementCounter.writes());
+    }
+
+    @Test
+    public void updateShouldInsertOnlyTheAddedCategory() {
+        dto.getCategories().add(new CategoryDTO(2L, null));
+
+        service.update(existingId, dto);
+
+        Assertions.assertEquals(1, SqlStatementCounter.count("insert into tb_product_category"));
+        Assertions.assertEquals(0, SqlStatementCounter.count("delete from tb_product_category"));
+        // owner version bump and the materialized category counter
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_product "));
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_category "));
+        Assertions.assertEquals(3, SqlStatementCounter.writes());
+    }
+
+    @Test
+    public void updateShouldDeleteOnlyTheRemovedCategory() {
+        dto.getCategories().removeIf(x -> x.getId().equals(1L));
+
+        service.update(existingId, dto);
+
+        Assertions.assertEquals(1, SqlStatementCounter.count("delete from tb_product_category"));
+        Assertions.assertEquals(0, SqlStatementCounter.count("insert into tb_product_category"));
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_product "));
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_category "));
+        Assertions.assertEquals(3, SqlStatementCounter.writes());
+    }
+
+    @Test
+    public void patchShouldOnlySetThePatchedColumn() {
+        service.patch(existingId, objectMapper.readTree("{\"price\": 1999.0}"));
+
+        Assertions.assertEquals(1, SqlStatementCounter.count("update tb_product set price=?,version=? where"));
+        Assertions.assertEquals(1, SqlStatementCounter.writes());
+    }
+
+    @Test
+    public void patchShouldWriteNothingWhenValuesAreUnchanged() {
+        service.patch(existingId, objectMapper.readTree("{\"name\": \"" + dto.getName() + "\"}"));
+
+        Assertions.assertEquals(0, SqlStatementCounter.writes());
+    }
+}
@@ -0,0 +1,39 @@
+package com.ceglauskis.dscatalog.services.cache;
+
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+public class CatalogVersionIT {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private ProductCache productCache;
+
+    @MockitoSpyBean
+    private CatalogVersion catalogVersion;
+
+    @Test
+    public void categoryCommitShouldInvalidateProductCacheBeforeBumpingCategoriesVersion() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> eventPublisher.publishEvent(new CategoryChangedEvent(3L)));
+
+        InOrder inOrder = Mockito.inOrder(productCache, catalogVersion);
+        inOrder.verify(productCache).onCategoryCommitted(ArgumentMatchers.any(CategoryChangedEvent.class));
+        inOrder.verify(catalogVersion).onCategoryCommitted(ArgumentMatchers.any(CategoryChangedEvent.class));
+    }
+}
@@ -0,0 +1,245 @@
+package com.ceglauskis.dscatalog.services.cache;
+
+import com.ceglauskis.dscatalog.dto.ProductDTO;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import com.ceglauskis.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.ceglauskis.dscatalog.services.exceptions.ServiceUnavailableException;
+import com.ceglauskis.dscatalog.tests.Factory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class ProductCacheTests {
+
+    private ProductCache cache;
+    private ProductDTO committed;
+    private ProductDTO uncommitted;
+    private Long existingId;
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new ProductCache(1_000_000L, Duration.ofSeconds(2), Duration.ofSeconds(30));
+        committed = Factory.createProductDTO();
+        uncommitted = Factory.createProductDTO();
+        uncommitted.setName("Uncommitted phone");
+        existingId = committed.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void getShouldLoadOnceAndRecordHitsAndMisses() {
+        cache.get(existingId, id -> committed);
+        ProductDTO result = cache.get(existingId, id -> uncommitted);
+
+        Assertions.assertSame(committed, result);
+        Assertions.assertEquals(1, cache.getStats().getHitCount());
+        Assertions.assertEquals(1, cache.getStats().getMissCount());
+    }
+
+    @Test
+    public void getShouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, ProductDTO> loader = id -> {
+            loads.incrementAndGet();
+            await(release);
+            return committed;
+        };
+
+        Future<ProductDTO> first = executor.submit(() -> cache.get(existingId, loader));
+        Future<ProductDTO> second = executor.submit(() -> cache.get(existingId, loader));
+        waitForCoalescedCalls(1);
+        release.countDown();
+
+        Assertions.assertSame(committed, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(committed, second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void getShouldShareLoaderExceptionWithConcurrentCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ResourceNotFoundException notFound = new ResourceNotFoundException("Entity not found");
+        Function<Long, ProductDTO> loader = id -> {
+            await(release);
+            throw notFound;
+        };
+
+        Future<ProductDTO> first = executor.submit(() -> cache.get(existingId, loader));
+        Future<ProductDTO> second = executor.submit(() -> cache.get(existingId, loader));
+        waitForCoalescedCalls(1);
+        release.countDown();
+
+        for (Future<ProductDTO> future : List.of(first, second)) {
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            Assertions.assertSame(notFound, e.getCause());
+        }
+        Assertions.assertNull(cache.getIfPresent(existingId));
+    }
+
+    @Test
+    public void getShouldNotLetCacheLogExpectedNotFound() {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger("com.github.benmanes.caffeine");
+        logger.addHandler(handler);
+        try {
+            Assertions.assertThrows(ResourceNotFoundException.class, () -> cache.get(existingId, id -> {
+                throw new ResourceNotFoundException("Entity not found");
+            }));
+            Assertions.assertThrows(IllegalStateException.class, () -> cache.get(2L, id -> {
+                throw new IllegalStateException("Connection lost");
+            }));
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        // only the genuine failure is reported by the cache
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertInstanceOf(IllegalStateException.class, records.get(0).getThrown());
+    }
+
+    @Test
+    public void getShouldThrowServiceUnavailableExceptionWhenConcurrentLoadOutlivesTimeout() throws Exception {
+        cache = new ProductCache(1_000_000L, Duration.ofMillis(50), Duration.ofSeconds(30));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<ProductDTO> first = executor.submit(() -> cache.get(existingId, id -> {
+            await(release);
+            return committed;
+        }));
+        waitForInFlightLoad();
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> cache.get(existingId, id -> uncommitted));
+        release.countDown();
+
+        Assertions.assertSame(committed, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, cache.getStats().getCoalesceTimeoutCount());
+    }
+
+    @Test
+    public void getShouldRememberNotFoundIdsUntilProductIsCommitted() {
+        ResourceNotFoundException notFound = new ResourceNotFoundException("Entity not found");
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> cache.get(existingId, id -> {
+            throw notFound;
+        }));
+
+        ResourceNotFoundException e = Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> cache.get(existingId, id -> committed));
+        Assertions.assertSame(notFound, e);
+        Assertions.assertEquals(1, cache.getStats().getNotFoundHitCount());
+
+        cache.onProductCommitted(new ProductChangedEvent(existingId));
+
+        Assertions.assertSame(committed, cache.get(existingId, id -> committed));
+    }
+
+    @Test
+    public void getAllShouldLoadOnlyMissesInOneCallAndSkipIdsTheLoaderDidNotFind() {
+        cache.get(existingId, id -> committed);
+        List<Set<Long>> calls = new ArrayList<>();
+
+        Map<Long, ProductDTO> result = cache.getAll(List.of(existingId, 5L, 6L), misses -> {
+            calls.add(misses);
+            return Map.of(5L, uncommitted);
+        });
+
+        Assertions.assertEquals(List.of(Set.of(5L, 6L)), calls);
+        Assertions.assertSame(committed, result.get(existingId));
+        Assertions.assertSame(uncommitted, result.get(5L));
+        Assertions.assertFalse(result.containsKey(6L));
+        Assertions.assertSame(uncommitted, cache.getIfPresent(5L));
+    }
+
+    @Test
+    public void getShouldBypassCacheForIdsWrittenByCurrentTransactionAndKeepEntryWhenRolledBack() {
+        cache.get(existingId, id -> committed);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.onProductWritten(new ProductChangedEvent(existingId));
+        ProductDTO insideTransaction = cache.get(existingId, id -> uncommitted);
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assertions.assertSame(uncommitted, insideTransaction);
+        Assertions.assertSame(committed, cache.get(existingId, id -> uncommitted));
+    }
+
+    @Test
+    public void onProductCommittedShouldInvalidateEntry() {
+        cache.get(existingId, id -> committed);
+
+        cache.onProductCommitted(new ProductChangedEvent(existingId));
+
+        Assertions.assertSame(uncommitted, cache.get(existingId, id -> uncommitted));
+    }
+
+    private void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private void waitForCoalescedCalls(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getStats().getCoalescedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(expected, cache.getStats().getCoalescedCount());
+    }
+
+    private void waitForInFlightLoad() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getStats().getMissCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ceglauskis.dscatalog.services.counters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class CategoryCountDeltasTests {
+
+    @Test
+    public void addShouldCountOnlyAddedAndRemovedCategories() {
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+
+        deltas.add(List.of(1L, 2L), List.of(2L, 3L));
+
+        Assertions.assertEquals(Map.of(-1L, List.of(1L), 1L, List.of(3L)), deltas.idsByDelta());
+    }
+
+    @Test
+    public void idsByDeltaShouldGroupCategoriesSharingTheSameDelta() {
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+
+        deltas.add(List.of(), List.of(1L, 2L));
+        deltas.add(List.of(), List.of(1L));
+
+        Assertions.assertEquals(Map.of(1L, List.of(2L), 2L, List.of(1L)), deltas.idsByDelta());
+    }
+
+    @Test
+    public void isEmptyShouldBeTrueWhenChangesCancelOut() {
+        CategoryCountDeltas deltas = new CategoryCountDeltas();
+
+        deltas.add(List.of(1L), List.of(2L));
+        deltas.add(List.of(2L), List.of(1L));
+
+        Assertions.assertTrue(deltas.isEmpty());
+        Assertions.assertTrue(deltas.idsByDelta().isEmpty());
+    }
+}
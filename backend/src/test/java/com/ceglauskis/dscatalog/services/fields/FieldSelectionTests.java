@@ -0,0 +1,42 @@
+package com.ceglauskis.dscatalog.services.fields;
+
+import com.ceglauskis.dscatalog.services.exceptions.InvalidRequestException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+public class FieldSelectionTests {
+
+    @Test
+    public void parseShouldKeepOrderAndNestedSelections() {
+        FieldSelection selection = FieldSelection.parse("id, name,categories(id,name)");
+
+        Assertions.assertEquals(List.of("id", "name", "categories"), List.copyOf(selection.names()));
+        Assertions.assertTrue(selection.nested("name").isAll());
+        Assertions.assertEquals(Set.of("id", "name"), selection.nested("categories").names());
+    }
+
+    @Test
+    public void parseShouldThrowInvalidRequestExceptionWhenExpressionIsMalformed() {
+        for (String expression : List.of("", "id,", "categories(id", "id)", "a(b(c))", "id,id")) {
+            Assertions.assertThrows(InvalidRequestException.class, () -> FieldSelection.parse(expression), expression);
+        }
+    }
+
+    @Test
+    public void writerShouldCopyOnlySelectedFields() {
+        Map<String, Function<String, Object>> accessors = new LinkedHashMap<>();
+        accessors.put("value", x -> x);
+        accessors.put("length", String::length);
+
+        Function<String, Map<String, Object>> writer = FieldSelection.parse("length").writer(accessors);
+
+        Assertions.assertEquals(Map.of("length", 5), writer.apply("hello"));
+        Assertions.assertThrows(InvalidRequestException.class, () -> FieldSelection.parse("size").writer(accessors));
+    }
+}
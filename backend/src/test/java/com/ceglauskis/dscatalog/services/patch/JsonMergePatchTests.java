@@ -0,0 +1,42 @@
+package com.ceglauskis.dscatalog.services.patch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+public class JsonMergePatchTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JsonNode json(String value) {
+        return objectMapper.readTree(value.replace('\'', '"'));
+    }
+
+    @Test
+    public void mergeShouldReplaceSuppliedMembersAndRemoveNullOnes() {
+        JsonNode target = json("{'a': 'b', 'c': {'d': 'e', 'f': 'g'}}");
+
+        JsonNode result = JsonMergePatch.merge(target, json("{'a': 'z', 'c': {'f': null}}"));
+
+        Assertions.assertEquals(json("{'a': 'z', 'c': {'d': 'e'}}"), result);
+    }
+
+    @Test
+    public void mergeShouldReplaceArraysAsAWhole() {
+        JsonNode target = json("{'categories': [{'id': 1}, {'id': 3}], 'name': 'x'}");
+
+        JsonNode result = JsonMergePatch.merge(target, json("{'categories': [{'id': 2}]}"));
+
+        Assertions.assertEquals(json("{'categories': [{'id': 2}], 'name': 'x'}"), result);
+    }
+
+    @Test
+    public void mergeShouldCreateNestedObjectsWhenTargetMemberIsNotAnObject() {
+        JsonNode target = json("{'a': [1]}");
+
+        JsonNode result = JsonMergePatch.merge(target, json("{'a': {'b': 'c', 'd': null}}"));
+
+        Assertions.assertEquals(json("{'a': {'b': 'c'}}"), result);
+    }
+}
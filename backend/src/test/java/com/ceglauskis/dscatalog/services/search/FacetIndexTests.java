@@ -0,0 +1,130 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class FacetIndexTests {
+
+    private FacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetIndex(new double[] {100.0, 1000.0});
+        index.put(1L, 90.5, List.of(2L));
+        index.put(2L, 2190.0, List.of(1L, 3L));
+        index.put(3L, 1250.0, List.of(3L));
+        index.put(4L, 1000.0, List.of(3L));
+        index.put(5L, 450.0, List.of());
+    }
+
+    @Test
+    public void queryShouldIntersectCategories() {
+        FacetResult result = index.query(List.of(1L, 3L), null, null, 0, 10);
+
+        Assertions.assertEquals(1L, result.getTotal());
+        Assertions.assertEquals(List.of(2L), result.getIds());
+        Assertions.assertEquals(Map.of(1L, 1L, 3L, 1L), result.getCategoryCounts());
+    }
+
+    @Test
+    public void queryShouldFilterPriceRangeInclusively() {
+        FacetResult result = index.query(List.of(), 450.0, 1250.0, 0, 10);
+
+        Assertions.assertEquals(List.of(3L, 4L, 5L), result.getIds());
+        Assertions.assertArrayEquals(new long[] {0L, 1L, 2L}, result.getPriceCounts());
+    }
+
+    @Test
+    public void queryShouldCountFacetsOverAllMatches() {
+        FacetResult result = index.query(List.of(), null, null, 1, 2);
+
+        Assertions.assertEquals(5L, result.getTotal());
+        Assertions.assertEquals(List.of(2L, 3L), result.getIds());
+        Assertions.assertEquals(Map.of(1L, 1L, 2L, 1L, 3L, 3L), result.getCategoryCounts());
+        Assertions.assertArrayEquals(new long[] {1L, 1L, 3L}, result.getPriceCounts());
+    }
+
+    @Test
+    public void queryShouldReturnEmptyWhenCategoryDoesNotExist() {
+        FacetResult result = index.query(List.of(99L), null, null, 0, 10);
+
+        Assertions.assertEquals(0L, result.getTotal());
+        Assertions.assertTrue(result.getCategoryCounts().isEmpty());
+    }
+
+    @Test
+    public void putShouldMoveProductBetweenBucketsAndCategories() {
+        index.put(3L, 50.0, List.of(2L));
+
+        FacetResult result = index.query(List.of(2L), null, 99.0, 0, 10);
+
+        Assertions.assertEquals(List.of(1L, 3L), result.getIds());
+        Assertions.assertEquals(List.of(2L, 4L), index.query(List.of(3L), null, null, 0, 10).getIds());
+    }
+
+    @Test
+    public void countByCategoryShouldReturnBitmapCardinality() {
+        Assertions.assertEquals(3, index.countByCategory(3L));
+        Assertions.assertEquals(0, index.countByCategory(99L));
+    }
+
+    @Test
+    public void removeShouldDropProductFromEveryBitmap() {
+        index.remove(2L);
+
+        FacetResult result = index.query(List.of(), null, null, 0, 10);
+
+        Assertions.assertEquals(4L, result.getTotal());
+        Assertions.assertFalse(result.getCategoryCounts().containsKey(1L));
+    }
+
+    @Test
+    public void putShouldIndexSparseIdsUpToIntegerMaxValue() {
+        index.put(Integer.MAX_VALUE, 1500.0, List.of(3L));
+        index.put(1_000_000_000L, 1200.0, List.of(3L));
+
+        FacetResult result = index.query(List.of(3L), 1100.0, 1600.0, 0, 10);
+
+        Assertions.assertEquals(List.of(3L, 1_000_000_000L, (long) Integer.MAX_VALUE), result.getIds());
+    }
+
+    @Test
+    public void putShouldRejectIdsOutsideBitmapRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.put(Integer.MAX_VALUE + 1L, 10.0, List.of()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> index.put(-1L, 10.0, List.of()));
+        index.remove(Integer.MAX_VALUE + 1L);
+
+        Assertions.assertEquals(5, index.size());
+    }
+
+    @Test
+    public void queryShouldMatchPricesAfterRandomPutsAndRemoves() {
+        FacetIndex sparse = new FacetIndex(new double[] {100.0, 1000.0});
+        Map<Long, Double> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(5_000) * 7919L;
+            if (random.nextInt(4) == 0) {
+                sparse.remove(id);
+                expected.remove(id);
+            } else {
+                double price = random.nextInt(200_000) / 100.0;
+                sparse.put(id, price, List.of());
+                expected.put(id, price);
+            }
+        }
+
+        for (double[] range : new double[][] {{50.0, 150.0}, {99.99, 1000.0}, {0.0, 2000.0}}) {
+            List<Long> ids = expected.keySet().stream()
+                    .filter(id -> expected.get(id) >= range[0] && expected.get(id) <= range[1]).sorted().toList();
+            Assertions.assertEquals(ids, sparse.query(List.of(), range[0], range[1], 0, Integer.MAX_VALUE).getIds());
+        }
+        Assertions.assertEquals(expected.size(), sparse.size());
+    }
+}
@@ -0,0 +1,88 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.services.ReadOnlyTransactions;
+import com.ceglauskis.dscatalog.services.events.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class IncrementalProductIndexTests {
+
+    private VersionIndex index;
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        index = new VersionIndex();
+        index.readOnlyTransactions = Mockito.mock(ReadOnlyTransactions.class);
+        Mockito.when(index.readOnlyTransactions.execute(any()))
+                .thenAnswer(x -> x.getArgument(0, TransactionCallback.class).doInTransaction(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reindexShouldNotApplyRowReadBeforeLaterCommitOverItsReindex() throws Exception {
+        index.stored.put(1L, 1);
+        index.pauseAfterRead = new CountDownLatch(1);
+        index.readDone = new CountDownLatch(1);
+        Future<?> first = executor.submit(() -> index.onProductCommitted(new ProductChangedEvent(1L)));
+        Assertions.assertTrue(index.readDone.await(5, TimeUnit.SECONDS));
+
+        index.stored.put(1L, 2);
+        Future<?> second = executor.submit(() -> index.onProductCommitted(new ProductChangedEvent(1L)));
+        Thread.sleep(200);
+        index.pauseAfterRead.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(2, index.applied.get(1L));
+    }
+
+    // stands in for a product table and an index over it, with a hook to stall the first read
+    private static class VersionIndex extends IncrementalProductIndex {
+
+        private final Map<Long, Integer> stored = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> applied = new ConcurrentHashMap<>();
+        private volatile CountDownLatch pauseAfterRead;
+        private volatile CountDownLatch readDone;
+
+        @Override
+        protected Runnable loadAll() {
+            return () -> applied.putAll(stored);
+        }
+
+        @Override
+        protected Runnable load(List<Long> ids) {
+            Map<Long, Integer> rows = new ConcurrentHashMap<>();
+            ids.forEach(id -> rows.put(id, stored.get(id)));
+            CountDownLatch pause = pauseAfterRead;
+            if (pause != null && readDone.getCount() > 0) {
+                readDone.countDown();
+                try {
+                    pause.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return () -> applied.putAll(rows);
+        }
+    }
+}
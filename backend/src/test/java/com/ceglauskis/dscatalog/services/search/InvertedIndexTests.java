@@ -0,0 +1,68 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class InvertedIndexTests {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex();
+        index.put(1L, "PC Gamer Nitro", "Fast desktop for games");
+        index.put(2L, "Smart TV", "Television with a gamer mode");
+        index.put(3L, "Macbook Pro", "Laptop for work");
+    }
+
+    @Test
+    public void searchShouldRankNameMatchesAboveDescriptionMatches() {
+        SearchResult result = index.search(List.of("gamer"), 0, 10);
+
+        Assertions.assertEquals(2, result.getTotal());
+        Assertions.assertEquals(List.of(1L, 2L), result.getIds());
+    }
+
+    @Test
+    public void searchShouldIgnoreAccentsAndCaseThroughTokenizer() {
+        index.put(4L, "Câmera Digital", "Fotografia");
+
+        SearchResult result = index.search(Tokenizer.tokenize("CAMERA"), 0, 10);
+
+        Assertions.assertEquals(List.of(4L), result.getIds());
+    }
+
+    @Test
+    public void searchShouldPaginateHits() {
+        SearchResult result = index.search(List.of("for"), 1, 1);
+
+        Assertions.assertEquals(2, result.getTotal());
+        Assertions.assertEquals(1, result.getIds().size());
+    }
+
+    @Test
+    public void putShouldReplacePreviousTextOfSameProduct() {
+        index.put(1L, "Office chair", "Ergonomic");
+
+        Assertions.assertEquals(List.of(2L), index.search(List.of("gamer"), 0, 10).getIds());
+        Assertions.assertEquals(List.of(1L), index.search(List.of("chair"), 0, 10).getIds());
+        Assertions.assertEquals(3, index.size());
+    }
+
+    @Test
+    public void removeShouldKeepResultsConsistentAfterCompaction() {
+        for (long id = 100; id < 3100; id++) {
+            index.put(id, "Filler " + id, "bulk");
+        }
+        for (long id = 100; id < 3100; id++) {
+            index.remove(id);
+        }
+
+        Assertions.assertEquals(3, index.size());
+        Assertions.assertEquals(0, index.search(List.of("bulk"), 0, 10).getTotal());
+        Assertions.assertEquals(List.of(1L, 2L), index.search(List.of("gamer"), 0, 10).getIds());
+    }
+}
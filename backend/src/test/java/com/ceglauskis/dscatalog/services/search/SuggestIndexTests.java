@@ -0,0 +1,80 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import com.ceglauskis.dscatalog.entities.Category;
+import com.ceglauskis.dscatalog.repositories.CategoryRepository;
+import com.ceglauskis.dscatalog.repositories.ProductRepository;
+import com.ceglauskis.dscatalog.services.ReadOnlyTransactions;
+import com.ceglauskis.dscatalog.services.events.CategoryChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+
+public class SuggestIndexTests {
+
+    private SuggestIndex index;
+    private ProductRepository productRepository;
+    private CategoryRepository categoryRepository;
+    private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestIndex();
+        productRepository = Mockito.mock(ProductRepository.class);
+        categoryRepository = Mockito.mock(CategoryRepository.class);
+        ReadOnlyTransactions transactions = Mockito.mock(ReadOnlyTransactions.class);
+        Mockito.when(transactions.execute(any()))
+                .thenAnswer(x -> x.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        Mockito.doAnswer(x -> {
+            x.getArgument(0, Consumer.class).accept(null);
+            return null;
+        }).when(transactions).executeWithoutResult(any());
+        ReflectionTestUtils.setField(index, "repository", productRepository);
+        ReflectionTestUtils.setField(index, "categoryRepository", categoryRepository);
+        index.readOnlyTransactions = transactions;
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void onCategoryCommittedShouldNotBeLostToRebuildLoadedBeforeIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(categoryRepository.findAll()).thenReturn(List.of(new Category(1L, "Books")));
+        Mockito.when(productRepository.streamSuggestText()).thenAnswer(x -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Stream.empty();
+        });
+        Future<?> rebuild = executor.submit(index::rebuild);
+        Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        Mockito.when(categoryRepository.findById(1L)).thenReturn(Optional.of(new Category(1L, "Novels")));
+        Future<?> renamed = executor.submit(() -> index.onCategoryCommitted(new CategoryChangedEvent(1L)));
+        Thread.sleep(200);
+        release.countDown();
+        rebuild.get(5, TimeUnit.SECONDS);
+        renamed.get(5, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(List.of("Novels"), index.suggest("nov", 10).stream().map(SuggestSnapshot.Entry::getName).toList());
+        Assertions.assertTrue(index.suggest("boo", 10).isEmpty());
+    }
+}
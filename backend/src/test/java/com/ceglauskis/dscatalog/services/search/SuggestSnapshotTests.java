@@ -0,0 +1,113 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class SuggestSnapshotTests {
+
+    private SuggestSnapshot snapshot;
+    private List<SuggestSnapshot.Entry> entries;
+
+    @BeforeEach
+    void setUp() {
+        entries = List.of(
+                product(1L, "pc gamer", 10L),
+                product(2L, "pc gamer alfa", 30L),
+                product(3L, "pc gamer tera", 20L),
+                product(4L, "smart tv", 40L),
+                new SuggestSnapshot.Entry(SuggestSnapshot.CATEGORY, 3L, "Computadores", "computadores", Long.MAX_VALUE));
+        snapshot = SuggestSnapshot.of(entries);
+    }
+
+    @Test
+    public void topShouldReturnPrefixMatchesByDescendingScore() {
+        List<SuggestSnapshot.Entry> result = snapshot.top("pc g", 2);
+
+        Assertions.assertEquals(List.of(2L, 3L), result.stream().map(SuggestSnapshot.Entry::getId).toList());
+    }
+
+    @Test
+    public void topShouldReturnEmptyListWhenNothingMatches() {
+        Assertions.assertTrue(snapshot.top("xyz", 5).isEmpty());
+        Assertions.assertTrue(snapshot.top("pc gamer z", 5).isEmpty());
+    }
+
+    @Test
+    public void patchShouldReplaceChangedEntriesAndKeepOthers() {
+        SuggestSnapshot patched = snapshot.patch(List.of(entries.get(1), entries.get(3)), List.of(product(2L, "pc gamer omega", 5L)));
+
+        Assertions.assertEquals(4, patched.size());
+        Assertions.assertEquals(List.of(3L, 1L, 2L), patched.top("pc", 5).stream().map(SuggestSnapshot.Entry::getId).toList());
+        Assertions.assertTrue(patched.top("smart", 5).isEmpty());
+        Assertions.assertEquals(5, snapshot.size());
+    }
+
+    @Test
+    public void topShouldRankCategoriesAboveProducts() {
+        snapshot = snapshot.patch(List.of(), List.of(product(5L, "computador gamer", 50L)));
+
+        List<SuggestSnapshot.Entry> result = snapshot.top("comp", 5);
+
+        Assertions.assertEquals(SuggestSnapshot.CATEGORY, result.get(0).getType());
+        Assertions.assertEquals(5L, result.get(1).getId());
+    }
+
+    @Test
+    public void patchShouldMatchFullRebuildAcrossSegments() {
+        Random random = new Random(42);
+        Map<Long, SuggestSnapshot.Entry> current = new HashMap<>();
+        for (long id = 1; id <= 5 * SuggestSnapshot.SEGMENT_SIZE; id++) {
+            current.put(id, randomProduct(random, id));
+        }
+        SuggestSnapshot patched = SuggestSnapshot.of(current.values());
+        for (int round = 0; round < 50; round++) {
+            List<SuggestSnapshot.Entry> removed = new ArrayList<>();
+            List<SuggestSnapshot.Entry> added = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                long id = 1 + random.nextInt(6 * SuggestSnapshot.SEGMENT_SIZE);
+                SuggestSnapshot.Entry previous = current.remove(id);
+                if (previous != null) {
+                    removed.add(previous);
+                }
+                if (random.nextInt(4) > 0) {
+                    SuggestSnapshot.Entry entry = randomProduct(random, id);
+                    current.put(id, entry);
+                    added.removeIf(x -> x.getId() == id);
+                    added.add(entry);
+                } else {
+                    added.removeIf(x -> x.getId() == id);
+                }
+            }
+            patched = patched.patch(removed, added);
+        }
+
+        SuggestSnapshot rebuilt = SuggestSnapshot.of(current.values());
+        Assertions.assertEquals(rebuilt.size(), patched.size());
+        for (String prefix : List.of("", "a", "b", "ab", "cab", "abc", "z")) {
+            Assertions.assertEquals(ids(rebuilt.top(prefix, 50)), ids(patched.top(prefix, 50)), prefix);
+        }
+    }
+
+    private List<Long> ids(List<SuggestSnapshot.Entry> entries) {
+        return entries.stream().map(SuggestSnapshot.Entry::getId).toList();
+    }
+
+    private SuggestSnapshot.Entry randomProduct(Random random, long id) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return product(id, key.toString(), random.nextInt(1000));
+    }
+
+    private SuggestSnapshot.Entry product(long id, String key, long score) {
+        return new SuggestSnapshot.Entry(SuggestSnapshot.PRODUCT, id, key, key, score);
+    }
+}
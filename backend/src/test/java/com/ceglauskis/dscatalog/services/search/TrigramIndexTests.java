@@ -0,0 +1,60 @@
+package com.ceglauskis.dscatalog.services.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TrigramIndexTests {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.put(1L, "Smart TV");
+        index.put(2L, "Smartphone");
+        index.put(3L, "Macbook Pro");
+        index.put(4L, "PC Gamer");
+    }
+
+    @Test
+    public void trigramsShouldPadWordsLikePgTrgm() {
+        Assertions.assertEquals(List.of("  t", " tv", "tv "), TrigramIndex.trigrams("tv"));
+    }
+
+    @Test
+    public void searchShouldFindMisspelledNamesRankedBySimilarity() {
+        SearchResult result = index.search("Smrt TV", 0.3f, 0, 10);
+
+        Assertions.assertEquals(1L, result.getIds().get(0));
+        Assertions.assertFalse(result.getIds().contains(3L));
+    }
+
+    @Test
+    public void searchShouldIgnoreAccentsAndCase() {
+        SearchResult result = index.search("MÁCBOK", 0.3f, 0, 10);
+
+        Assertions.assertEquals(List.of(3L), result.getIds());
+    }
+
+    @Test
+    public void searchShouldReturnNothingWhenBelowThreshold() {
+        Assertions.assertEquals(0, index.search("zzz", 0.3f, 0, 10).getTotal());
+    }
+
+    @Test
+    public void removeShouldDropProductFromResultsAcrossCompaction() {
+        for (long id = 100; id < 3100; id++) {
+            index.put(id, "Smart TV " + id);
+        }
+        for (long id = 100; id < 3100; id++) {
+            index.remove(id);
+        }
+        index.remove(1L);
+
+        Assertions.assertEquals(3, index.size());
+        Assertions.assertFalse(index.search("smart tv", 0.3f, 0, 10).getIds().contains(1L));
+    }
+}
@@ -19,7 +19,9 @@ public class Factory {
 
     public static ProductDTO createProductDTO(){
         Product product = createProduct();
-        return new ProductDTO(product, product.getCategories());
+        ProductDTO dto = new ProductDTO(product, product.getCategories());
+        dto.setVersion(0);
+        return dto;
     }
 
     public static User createUser(){
@@ -0,0 +1,42 @@
+package com.ceglauskis.dscatalog.tests;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// registered through hibernate.session_factory.statement_inspector in statement-count tests
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " "));
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    public static long count(String prefix) {
+        return STATEMENTS.get().stream().filter(x -> x.startsWith(prefix)).count();
+    }
+
+    // the most recent statement starting with the prefix, lower-cased with its whitespace collapsed
+    public static String last(String prefix) {
+        List<String> statements = STATEMENTS.get();
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            if (statements.get(i).startsWith(prefix)) {
+                return statements.get(i);
+            }
+        }
+        return null;
+    }
+
+    public static long writes() {
+        return count("insert") + count("update") + count("delete");
+    }
+}